@@ -18,6 +18,12 @@ android {
         vectorDrawables {
             useSupportLibrary = true
         }
+        // Room writes each schema version to app/schemas, commit them alongside the migration
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
     }
 
     buildTypes {
@@ -48,6 +54,12 @@ android {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
         }
     }
+    // The JVM decode benchmarks are skipped unless asked for: ./gradlew testDebugUnitTest -Pbenchmarks
+    testOptions {
+        unitTests.all {
+            it.systemProperty("benchmarks", project.hasProperty("benchmarks").toString())
+        }
+    }
 }
 
 dependencies {
@@ -63,10 +75,17 @@ dependencies {
     // Retrofit
     implementation("com.squareup.retrofit2:retrofit:2.11.0")
     implementation("com.squareup.retrofit2:converter-gson:2.11.0")
+    // OkHttp - shared client with disk cache
+    implementation("com.squareup.okhttp3:okhttp:4.12.0")
     // RecycleView
     implementation(libs.androidx.recyclerview)
     // Glide
     implementation ("com.github.bumptech.glide:glide:4.16.0")
+    annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
+    implementation("com.github.bumptech.glide:recyclerview-integration:4.16.0") {
+        // Uses the RecyclerView version declared above
+        isTransitive = false
+    }
     // CardView
     implementation(libs.androidx.cardview)
     implementation(libs.androidx.constraintlayout)
@@ -83,7 +102,12 @@ dependencies {
     // Splash screen
     implementation("androidx.core:core-splashscreen:1.0.1")
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+    // InstantTaskExecutorRule, LiveData in JVM tests
+    testImplementation("androidx.arch.core:core-testing:2.2.0")
     androidTestImplementation(libs.androidx.junit)
+    androidTestImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+    androidTestImplementation("androidx.arch.core:core-testing:2.2.0")
     androidTestImplementation(libs.androidx.espresso.core)
     androidTestImplementation(platform(libs.androidx.compose.bom))
     androidTestImplementation(libs.androidx.ui.test.junit4)
@@ -0,0 +1,159 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.easysale.model.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class IdAllocatorTest {
+    private static final int BLOCK_SIZE = 8;
+
+    private UserDatabase database;
+    private UserDao userDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, UserDatabase.class).build();
+        userDao = database.userDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    private static User newUser(int id) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName("User" + id);
+        user.setLastName("Bluth");
+        user.setEmail("user" + id + "@reqres.in");
+        return user;
+    }
+
+    // Same shape as FetchUsers.createUser: allocate and insert in one transaction
+    private int create(IdAllocator allocator) {
+        return database.runInTransaction(() -> {
+            int id = allocator.nextUserId();
+            userDao.insert(newUser(id));
+            return id;
+        });
+    }
+
+    @Test
+    public void parallelCreates_getDistinctIds() throws Exception {
+        IdAllocator allocator = new IdAllocator(database, BLOCK_SIZE);
+        int threads = 8;
+        int createsPerThread = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Callable<List<Integer>> creates = () -> {
+                start.await();
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < createsPerThread; i++) {
+                    ids.add(create(allocator));
+                }
+                return ids;
+            };
+            results.add(pool.submit(creates));
+        }
+        start.countDown();
+
+        Set<Integer> allIds = new HashSet<>();
+        for (Future<List<Integer>> result : results) {
+            List<Integer> ids = result.get(30, TimeUnit.SECONDS);
+            List<Integer> sorted = new ArrayList<>(ids);
+            Collections.sort(sorted);
+            // Each thread sees ids increase
+            assertEquals(sorted, ids);
+            allIds.addAll(ids);
+        }
+        pool.shutdown();
+        assertEquals(threads * createsPerThread, allIds.size());
+        assertEquals(threads * createsPerThread, userDao.countUsers());
+    }
+
+    @Test
+    public void startsAfterExistingUsers_andNeverReusesDeletedIds() {
+        userDao.upsertAll(Arrays.asList(newUser(1), newUser(12)));
+        IdAllocator allocator = new IdAllocator(database, BLOCK_SIZE);
+
+        int first = create(allocator);
+        assertEquals(13, first);
+        userDao.delete(userDao.getUserById(first));
+
+        assertEquals(14, create(allocator));
+    }
+
+    @Test
+    public void newAllocator_continuesAfterReservedBlock() {
+        IdAllocator beforeRestart = new IdAllocator(database, BLOCK_SIZE);
+        assertEquals(1, create(beforeRestart));
+
+        // Ids 2..8 were reserved by the first instance and are skipped, not handed out again
+        IdAllocator afterRestart = new IdAllocator(database, BLOCK_SIZE);
+        assertEquals(1 + BLOCK_SIZE, create(afterRestart));
+    }
+
+    @Test
+    public void skipsIdsTakenBySyncedUsers() {
+        IdAllocator allocator = new IdAllocator(database, BLOCK_SIZE);
+        assertEquals(1, create(allocator));
+        // A sync stores server users inside the reserved block
+        userDao.upsertAll(Arrays.asList(newUser(2), newUser(3)));
+
+        assertEquals(4, create(allocator));
+    }
+
+    @Test
+    public void rolledBackCreate_doesNotHandOutIdTwice() {
+        IdAllocator allocator = new IdAllocator(database, BLOCK_SIZE);
+        int[] rolledBack = new int[1];
+        try {
+            database.runInTransaction(() -> {
+                rolledBack[0] = allocator.nextUserId();
+                throw new IllegalStateException("insert failed");
+            });
+            fail("Transaction should have thrown");
+        } catch (IllegalStateException expected) {
+            // The block reservation was rolled back with it
+        }
+
+        int next = create(allocator);
+        assertTrue(next > rolledBack[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void outsideTransaction_throws() {
+        new IdAllocator(database, BLOCK_SIZE).nextUserId();
+    }
+}
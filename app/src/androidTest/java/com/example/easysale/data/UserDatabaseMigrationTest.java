@@ -0,0 +1,188 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.easysale.model.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+// Builds databases as older app versions left them, then opens them with the current UserDatabase.
+// Room validates the migrated schema against the entities on open and throws if they differ.
+// Schemas are exported from v9 on; later migrations can be tested with MigrationTestHelper instead.
+@RunWith(AndroidJUnit4.class)
+public class UserDatabaseMigrationTest {
+    private static final String TEST_DB = "migration-test";
+    // Schema of the first release, before any migration existed
+    private static final String CREATE_USERS_V3 = "CREATE TABLE IF NOT EXISTS `users` (`id` INTEGER NOT NULL, "
+            + "`email` TEXT, `firstName` TEXT, `lastName` TEXT, `avatar` TEXT, PRIMARY KEY(`id`))";
+
+    private Context context;
+    private UserDatabase database;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        context.deleteDatabase(TEST_DB);
+    }
+
+    // Creates TEST_DB at the given version: the v3 table plus every migration up to that version
+    private SupportSQLiteDatabase createDatabase(int version) {
+        SupportSQLiteOpenHelper.Configuration configuration = SupportSQLiteOpenHelper.Configuration.builder(context)
+                .name(TEST_DB)
+                .callback(new SupportSQLiteOpenHelper.Callback(version) {
+                    @Override
+                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                        db.execSQL(CREATE_USERS_V3);
+                        for (int i = 0; i < version - 3; i++) {
+                            UserDatabase.ALL_MIGRATIONS[i].migrate(db);
+                        }
+                    }
+
+                    @Override
+                    public void onUpgrade(@NonNull SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+                    }
+                })
+                .build();
+        return new FrameworkSQLiteOpenHelperFactory().create(configuration).getWritableDatabase();
+    }
+
+    private static void insertUser(SupportSQLiteDatabase db, int id, String email, String firstName) {
+        ContentValues values = new ContentValues();
+        values.put("id", id);
+        values.put("email", email);
+        values.put("firstName", firstName);
+        values.put("lastName", "Bluth");
+        values.put("avatar", "https://reqres.in/img/faces/" + id + "-image.jpg");
+        db.insert("users", SQLiteDatabase.CONFLICT_ABORT, values);
+    }
+
+    private UserDatabase openMigrated() {
+        database = Room.databaseBuilder(context, UserDatabase.class, TEST_DB)
+                .addMigrations(UserDatabase.ALL_MIGRATIONS)
+                .build();
+        return database;
+    }
+
+    @Test
+    public void migrateFromV3_keepsUsersAndBuildsSearchIndex() {
+        SupportSQLiteDatabase v3 = createDatabase(3);
+        insertUser(v3, 1, "george@reqres.in", "George");
+        insertUser(v3, 2, "janet@reqres.in", "Janet");
+        v3.close();
+
+        UserDao userDao = openMigrated().userDao();
+
+        assertEquals(2, userDao.countUsers());
+        User janet = userDao.getUserById(2);
+        assertEquals("janet@reqres.in", janet.getEmail());
+        // Rows from before delta sync existed get rewritten by the next sync
+        assertEquals(0, janet.getSyncHash());
+        List<User> found = userDao.search("jan*", 10, 0);
+        assertEquals(1, found.size());
+        assertEquals(2, found.get(0).getId());
+        assertEquals(0, database.outboxDao().countEntries());
+    }
+
+    @Test
+    public void migrateFromEveryVersion_opensWithCurrentSchema() {
+        for (int version = 3; version < 9; version++) {
+            context.deleteDatabase(TEST_DB);
+            SupportSQLiteDatabase old = createDatabase(version);
+            insertUser(old, 7, "michael@reqres.in", "Michael");
+            old.close();
+
+            assertNotNull("from v" + version, openMigrated().userDao().getUserById(7));
+            database.close();
+            database = null;
+        }
+    }
+
+    @Test
+    public void migrateFromV7_keepsEveryRowAndGivesDuplicateEmailToOldest() {
+        SupportSQLiteDatabase v7 = createDatabase(7);
+        insertUser(v7, 3, "Emma@reqres.in", "Emma");
+        insertUser(v7, 9, "emma@reqres.in", "Emma");
+        insertUser(v7, 4, "eve@reqres.in", "Eve");
+        v7.close();
+
+        UserDao userDao = openMigrated().userDao();
+
+        assertEquals(3, userDao.countUsers());
+        assertEquals("Emma@reqres.in", userDao.getUserById(3).getEmail());
+        assertNull(userDao.getUserById(9).getEmail());
+        assertEquals(1, userDao.countUsersWithEmail("EMMA@REQRES.IN", -1));
+        // The row that lost its email is still found by name, no longer by email
+        assertEquals(2, userDao.countSearchResults("emma*"));
+        assertEquals(1, userDao.countSearchResults("email:emma*"));
+    }
+
+    @Test
+    public void migrateFromV7_duplicateWithPendingChange_keepsItsEmail() {
+        SupportSQLiteDatabase v7 = createDatabase(7);
+        insertUser(v7, 3, "emma@reqres.in", "Emma");
+        insertUser(v7, 9, "Emma@reqres.in", "Emma");
+        ContentValues entry = new ContentValues();
+        entry.put("userId", 9);
+        entry.put("operation", "UPDATE");
+        entry.put("version", 1);
+        entry.put("attempts", 0);
+        entry.put("nextAttemptAt", 0);
+        v7.insert("outbox", SQLiteDatabase.CONFLICT_ABORT, entry);
+        v7.close();
+
+        UserDatabase migrated = openMigrated();
+        UserDao userDao = migrated.userDao();
+
+        assertEquals(2, userDao.countUsers());
+        assertNull(userDao.getUserById(3).getEmail());
+        assertEquals("Emma@reqres.in", userDao.getUserById(9).getEmail());
+        assertEquals(1, migrated.outboxDao().countEntries());
+    }
+
+    @Test
+    public void migrateFromV7_uniqueIndexRejectsEmailInOtherCase() {
+        SupportSQLiteDatabase v7 = createDatabase(7);
+        insertUser(v7, 3, "emma@reqres.in", "Emma");
+        v7.close();
+        UserDao userDao = openMigrated().userDao();
+
+        User copy = new User();
+        copy.setId(10);
+        copy.setEmail("Emma@ReqRes.in");
+        try {
+            userDao.insert(copy);
+            fail("Duplicate email was inserted");
+        } catch (SQLiteConstraintException expected) {
+            assertEquals(1, userDao.countUsers());
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.easysale.model.OutboxEntry;
+import com.example.easysale.model.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+// Drains the outbox against a local MockWebServer, with an in-memory database and a manual clock
+@RunWith(AndroidJUnit4.class)
+public class UserOutboxTest {
+    private MockWebServer server;
+    private UserDatabase database;
+    private ApiService apiService;
+    private AcknowledgedChanges acknowledged;
+    private UserOutbox outbox;
+    private long now = 1_000_000;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, UserDatabase.class).allowMainThreadQueries().build();
+        // No silent retries, every attempt has to show up on the server
+        OkHttpClient httpClient = new OkHttpClient.Builder().retryOnConnectionFailure(false).build();
+        apiService = RetrofitClient.buildRetrofit(server.url("/api/").toString(), httpClient)
+                .create(ApiService.class);
+        SharedPreferences prefs = context.getSharedPreferences("UserOutboxTest", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        acknowledged = new AcknowledgedChanges(prefs);
+        // Drains are run directly by the tests, the ones record() requests are dropped
+        outbox = new UserOutbox(apiService, database, acknowledged, () -> now, command -> { });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        database.close();
+        server.shutdown();
+    }
+
+    private User newUser(int id, String firstName) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        user.setLastName("Bluth");
+        user.setEmail(firstName.toLowerCase() + "@reqres.in");
+        return user;
+    }
+
+    private void create(User user) {
+        outbox.record(OutboxEntry.CREATE, () -> {
+            database.userDao().insert(user);
+            return user.getId();
+        });
+    }
+
+    private void update(User user) {
+        outbox.record(OutboxEntry.UPDATE, () -> {
+            database.userDao().update(user);
+            return user.getId();
+        });
+    }
+
+    private void delete(User user) {
+        outbox.record(OutboxEntry.DELETE, () -> {
+            database.userDao().delete(user);
+            return user.getId();
+        });
+    }
+
+    @Test
+    public void repeatedEdits_areCoalescedIntoOneRequestWithTheLatestRow() throws Exception {
+        User user = newUser(13, "George");
+        create(user);
+        user.setFirstName("Gob");
+        update(user);
+        user.setFirstName("Buster");
+        update(user);
+        assertEquals(1, database.outboxDao().countEntries());
+
+        server.enqueue(new MockResponse().setResponseCode(201).setBody("{\"id\":\"13\"}"));
+        assertEquals(1, outbox.drainNow());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertTrue(request.getBody().readUtf8().contains("\"first_name\":\"Buster\""));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, database.outboxDao().countEntries());
+    }
+
+    @Test
+    public void editWhileTheCreateIsInFlight_followsAsAnUpdate() throws Exception {
+        User user = newUser(13, "George");
+        create(user);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("POST".equals(request.getMethod())) {
+                    // The user saves again before the create's response is back
+                    user.setFirstName("Gob");
+                    update(user);
+                    return new MockResponse().setResponseCode(201).setBody("{\"id\":\"13\"}");
+                }
+                return new MockResponse().setBody("{\"first_name\":\"Gob\"}");
+            }
+        });
+
+        assertEquals(2, outbox.drainNow());
+
+        assertEquals("POST", server.takeRequest().getMethod());
+        RecordedRequest followUp = server.takeRequest();
+        assertEquals("PUT", followUp.getMethod());
+        assertTrue(followUp.getBody().readUtf8().contains("\"first_name\":\"Gob\""));
+        assertEquals(0, database.outboxDao().countEntries());
+    }
+
+    @Test
+    public void deleteWhileTheCreateIsInFlight_isStillSent() throws Exception {
+        User user = newUser(13, "George");
+        create(user);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("POST".equals(request.getMethod())) {
+                    delete(user);
+                    return new MockResponse().setResponseCode(201).setBody("{\"id\":\"13\"}");
+                }
+                return new MockResponse().setResponseCode(204);
+            }
+        });
+
+        assertEquals(2, outbox.drainNow());
+
+        assertEquals("POST", server.takeRequest().getMethod());
+        assertEquals("DELETE", server.takeRequest().getMethod());
+        assertEquals(0, database.outboxDao().countEntries());
+    }
+
+    @Test
+    public void deleteBeforeTheCreateWasSent_sendsNothing() {
+        User user = newUser(13, "George");
+        create(user);
+        delete(user);
+
+        assertEquals(0, database.outboxDao().countEntries());
+        assertEquals(0, outbox.drainNow());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void serverError_isRetriedWithBackoff() throws Exception {
+        User user = newUser(13, "George");
+        database.userDao().insert(user);
+        update(user);
+
+        server.enqueue(new MockResponse().setResponseCode(503));
+        assertEquals(0, outbox.drainNow());
+        OutboxEntry entry = database.outboxDao().getByUserId(13);
+        assertEquals(1, entry.getAttempts());
+        assertTrue(entry.getNextAttemptAt() > now);
+
+        // Still backing off
+        assertEquals(0, outbox.drainNow());
+        assertEquals(1, server.getRequestCount());
+
+        now = entry.getNextAttemptAt();
+        server.enqueue(new MockResponse().setBody("{\"first_name\":\"George\"}"));
+        assertEquals(1, outbox.drainNow());
+        assertEquals("PUT", server.takeRequest().getMethod());
+        assertEquals("PUT", server.takeRequest().getMethod());
+        assertNull(database.outboxDao().getByUserId(13));
+    }
+
+    @Test
+    public void unreachableServer_stopsTheDrainAndKeepsEverything() {
+        create(newUser(13, "George"));
+        create(newUser(14, "Lucille"));
+
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        assertEquals(0, outbox.drainNow());
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(2, database.outboxDao().countEntries());
+        assertEquals(1, database.outboxDao().getByUserId(13).getAttempts());
+        assertEquals(0, database.outboxDao().getByUserId(14).getAttempts());
+    }
+
+    @Test
+    public void updateOfUserMissingOnServer_recreatesIt() throws Exception {
+        User user = newUser(13, "George");
+        database.userDao().insert(user);
+        update(user);
+
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setResponseCode(201).setBody("{\"id\":\"13\"}"));
+        assertEquals(1, outbox.drainNow());
+
+        assertEquals("PUT", server.takeRequest().getMethod());
+        assertEquals("POST", server.takeRequest().getMethod());
+        assertEquals(0, database.outboxDao().countEntries());
+    }
+
+    @Test
+    public void rejectedUpdate_letsTheServerWin() {
+        User user = newUser(13, "George");
+        user.setSyncHash(42);
+        database.userDao().insert(user);
+        update(user);
+
+        server.enqueue(new MockResponse().setResponseCode(409));
+        assertEquals(0, outbox.drainNow());
+
+        assertEquals(0, database.outboxDao().countEntries());
+        // The next delta sync rewrites the row from the server
+        assertEquals(0, database.userDao().getUserById(13).getSyncHash());
+    }
+
+    @Test
+    public void deleteOfUserAlreadyGoneOnServer_counts() throws Exception {
+        User user = newUser(13, "George");
+        database.userDao().insert(user);
+        delete(user);
+
+        server.enqueue(new MockResponse().setResponseCode(404));
+        assertEquals(1, outbox.drainNow());
+
+        assertEquals("DELETE", server.takeRequest().getMethod());
+        assertEquals(0, database.outboxDao().countEntries());
+    }
+
+    @Test
+    public void acknowledgedCreateAndDelete_areRemembered() throws Exception {
+        User created = newUser(13, "George");
+        create(created);
+        server.enqueue(new MockResponse().setResponseCode(201).setBody("{\"id\":\"13\"}"));
+        assertEquals(1, outbox.drainNow());
+        assertEquals(Collections.singleton(13), acknowledged.getCreatedIds());
+
+        User fromServer = newUser(2, "Janet");
+        database.userDao().insert(fromServer);
+        delete(fromServer);
+        delete(created);
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        assertEquals(2, outbox.drainNow());
+
+        assertTrue(acknowledged.getCreatedIds().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(2, 13)), acknowledged.getDeletedIds());
+    }
+
+    private List<Integer> insertUsers(int count) {
+        List<User> users = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            users.add(newUser(id, "User" + id));
+            ids.add(id);
+        }
+        database.userDao().upsertAll(users);
+        return ids;
+    }
+
+    @Test
+    public void batchDelete_isOneWriteAndSendsConcurrently() throws Exception {
+        List<Integer> ids = insertUsers(12);
+        outbox.recordAll(OutboxEntry.DELETE, () -> {
+            database.userDao().deleteByIds(ids);
+            return ids;
+        });
+        assertEquals(0, database.userDao().countUsers());
+        assertEquals(12, database.outboxDao().countEntries());
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(100);
+                inFlight.decrementAndGet();
+                return new MockResponse().setResponseCode(204);
+            }
+        });
+        ExecutorService senders = Executors.newFixedThreadPool(8);
+        UserOutbox concurrentOutbox = new UserOutbox(apiService, database, acknowledged, () -> now, command -> { },
+                senders, 0);
+
+        assertEquals(12, concurrentOutbox.drainNow());
+        senders.shutdown();
+
+        assertEquals(12, server.getRequestCount());
+        assertEquals(0, database.outboxDao().countEntries());
+        assertTrue("max in flight " + maxInFlight.get(),
+                maxInFlight.get() > 1 && maxInFlight.get() <= UserOutbox.MAX_IN_FLIGHT);
+    }
+
+    @Test
+    public void failedBatchWrite_rollsBackEveryChange() {
+        List<Integer> ids = insertUsers(5);
+        try {
+            outbox.recordAll(OutboxEntry.DELETE, () -> {
+                database.userDao().deleteByIds(ids);
+                throw new IllegalStateException("write failed");
+            });
+            fail("Batch should have thrown");
+        } catch (IllegalStateException expected) {
+            // Nothing was deleted or queued
+        }
+        assertEquals(5, database.userDao().countUsers());
+        assertEquals(0, database.outboxDao().countEntries());
+    }
+
+    @Test
+    public void sends_areRateLimited() {
+        List<Integer> ids = insertUsers(5);
+        outbox.recordAll(OutboxEntry.DELETE, () -> {
+            database.userDao().deleteByIds(ids);
+            return ids;
+        });
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(204));
+        }
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        ExecutorService senders = Executors.newFixedThreadPool(4);
+        UserOutbox limitedOutbox = new UserOutbox(apiService, database, acknowledged, () -> now, command -> { },
+                senders, intervalNanos);
+
+        long start = System.nanoTime();
+        assertEquals(5, limitedOutbox.drainNow());
+        senders.shutdown();
+        // The first request goes out right away, every later one waits its turn
+        assertTrue(System.nanoTime() - start >= 4 * intervalNanos);
+    }
+
+    @Test
+    public void drain_leavesTheOutboxLaneFreeWhileRequestsAreOut() throws Exception {
+        List<Integer> ids = insertUsers(3);
+        CountDownLatch answer = new CountDownLatch(1);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                answer.await(5, TimeUnit.SECONDS);
+                return new MockResponse().setResponseCode(204);
+            }
+        });
+        ExecutorService lane = Executors.newSingleThreadExecutor();
+        ExecutorService senders = Executors.newFixedThreadPool(4);
+        UserOutbox laneOutbox = new UserOutbox(apiService, database, acknowledged, () -> now, lane, senders, 0);
+
+        laneOutbox.recordAll(OutboxEntry.DELETE, () -> {
+            database.userDao().deleteByIds(ids);
+            return ids;
+        });
+        // The first request is out and unanswered, the lane still takes other work
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        CountDownLatch laneFree = new CountDownLatch(1);
+        lane.execute(laneFree::countDown);
+        assertTrue(laneFree.await(1, TimeUnit.SECONDS));
+
+        answer.countDown();
+        for (int i = 0; i < 50 && database.outboxDao().countEntries() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, database.outboxDao().countEntries());
+        lane.shutdown();
+        senders.shutdown();
+    }
+}
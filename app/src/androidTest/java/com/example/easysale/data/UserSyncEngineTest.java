@@ -0,0 +1,202 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.easysale.model.OutboxEntry;
+import com.example.easysale.model.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+// Syncs single-page user lists from a local MockWebServer into an in-memory database
+@RunWith(AndroidJUnit4.class)
+public class UserSyncEngineTest {
+    private MockWebServer server;
+    private UserDatabase database;
+    private UserDao userDao;
+    private ApiService apiService;
+    private AcknowledgedChanges acknowledged;
+    private UserSyncEngine syncEngine;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, UserDatabase.class).build();
+        userDao = database.userDao();
+        apiService = RetrofitClient.buildRetrofit(server.url("/api/").toString(), new OkHttpClient())
+                .create(ApiService.class);
+        SharedPreferences prefs = context.getSharedPreferences("UserSyncEngineTest", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        acknowledged = new AcknowledgedChanges(prefs);
+        syncEngine = new UserSyncEngine(apiService, database, acknowledged, 6, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        database.close();
+        server.shutdown();
+    }
+
+    private static String user(int id, String firstName, String email) {
+        return "{\"id\":" + id + ",\"email\":\"" + email + "\",\"first_name\":\"" + firstName
+                + "\",\"last_name\":\"Bluth\",\"avatar\":\"https://reqres.in/img/faces/" + id + "-image.jpg\"}";
+    }
+
+    private void enqueuePage(String... users) {
+        server.enqueue(new MockResponse().setBody("{\"page\":1,\"per_page\":6,\"total\":" + users.length
+                + ",\"total_pages\":1,\"data\":[" + String.join(",", users) + "]}"));
+    }
+
+    // Runs a sync and waits for it; returns the number of changed rows
+    private int sync(boolean delta) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger changedRows = new AtomicInteger(-1);
+        UserSyncEngine.OnSyncListener listener = new UserSyncEngine.OnSyncListener() {
+            @Override
+            public void onSyncComplete(int changed) {
+                changedRows.set(changed);
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String error) {
+                done.countDown();
+            }
+        };
+        if (delta) {
+            syncEngine.deltaSync(listener);
+        } else {
+            syncEngine.sync(listener);
+        }
+        assertTrue("Sync timed out", done.await(10, TimeUnit.SECONDS));
+        return changedRows.get();
+    }
+
+    @Test
+    public void sync_serverServingSmallerPages_fetchesEveryPage() throws Exception {
+        syncEngine = new UserSyncEngine(apiService, database, acknowledged, 100, 2);
+        // Asked for 100 per page, the server serves 2 and only reports the total
+        server.enqueue(new MockResponse().setBody("{\"page\":1,\"per_page\":2,\"total\":3,\"data\":["
+                + user(1, "George", "george@reqres.in") + "," + user(2, "Janet", "janet@reqres.in") + "]}"));
+        server.enqueue(new MockResponse().setBody("{\"page\":2,\"per_page\":2,\"total\":3,\"data\":["
+                + user(3, "Emma", "emma@reqres.in") + "]}"));
+
+        assertEquals(3, sync(false));
+        assertEquals(3, userDao.countUsers());
+        assertEquals("/api/users?page=1&per_page=100", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void deltaSync_renamedUser_isOnlyFoundByItsNewName() throws Exception {
+        enqueuePage(user(1, "George", "george@reqres.in"), user(2, "Janet", "janet@reqres.in"));
+        assertEquals(2, sync(false));
+        assertEquals(1, userDao.search("george*", 10, 0).size());
+
+        enqueuePage(user(1, "Gob", "george@reqres.in"), user(2, "Janet", "janet@reqres.in"));
+        assertEquals(1, sync(true));
+
+        // The rename went through UPDATE, so the index dropped the old tokens instead of keeping both
+        assertEquals(0, userDao.search("george*", 10, 0).size());
+        assertEquals(0, userDao.countSearchResults("george*"));
+        assertEquals(1, userDao.search("gob*", 10, 0).size());
+        assertEquals(1, userDao.countSearchResults("gob*"));
+        assertEquals(1, userDao.countSearchResults("janet*"));
+        assertEquals(2, userDao.countUsers());
+    }
+
+    private User insertLocalUser(int id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setFirstName("Lucille");
+        user.setLastName("Bluth");
+        userDao.insert(user);
+        return user;
+    }
+
+    @Test
+    public void deltaSync_keepsUsersCreatedAndDeletedHere() throws Exception {
+        enqueuePage(user(1, "George", "george@reqres.in"), user(2, "Janet", "janet@reqres.in"));
+        assertEquals(2, sync(false));
+        // Both changes were acknowledged, but the server kept neither
+        insertLocalUser(500, "lucille@reqres.in");
+        acknowledged.recordCreated(500);
+        userDao.deleteByIds(Collections.singletonList(2));
+        acknowledged.recordDeleted(2);
+
+        enqueuePage(user(1, "George", "george@reqres.in"), user(2, "Janet", "janet@reqres.in"));
+        assertEquals(0, sync(true));
+        assertNotNull(userDao.getUserById(500));
+        assertNull(userDao.getUserById(2));
+
+        // Once the server stops listing the deleted user, its tombstone goes
+        enqueuePage(user(1, "George", "george@reqres.in"));
+        assertEquals(0, sync(true));
+        assertTrue(acknowledged.getDeletedIds().isEmpty());
+        assertNotNull(userDao.getUserById(500));
+    }
+
+    @Test
+    public void sync_emailHeldByLocalUser_movesToServerRowAndKeepsBoth() throws Exception {
+        insertLocalUser(500, "emma@reqres.in");
+
+        // A full sync leaves rows the server doesn't know about in place
+        enqueuePage(user(1, "George", "george@reqres.in"), user(3, "Emma", "Emma@reqres.in"));
+        assertEquals(2, sync(false));
+
+        assertEquals("Emma@reqres.in", userDao.getUserById(3).getEmail());
+        assertNull(userDao.getUserById(500).getEmail());
+    }
+
+    @Test
+    public void sync_emailHeldByUserWithPendingChange_storesServerRowWithoutIt() throws Exception {
+        enqueuePage(user(1, "George", "george@reqres.in"));
+        assertEquals(1, sync(false));
+        insertLocalUser(500, "emma@reqres.in");
+        OutboxEntry entry = new OutboxEntry();
+        entry.setUserId(500);
+        entry.setOperation(OutboxEntry.CREATE);
+        database.outboxDao().insert(entry);
+
+        enqueuePage(user(1, "George", "george@reqres.in"), user(3, "Emma", "emma@reqres.in"));
+        sync(true);
+
+        assertEquals("emma@reqres.in", userDao.getUserById(500).getEmail());
+        User emma = userDao.getUserById(3);
+        assertNull(emma.getEmail());
+        // Retried by the next sync once the pending change went out
+        assertEquals(0, emma.getSyncHash());
+    }
+
+    @Test
+    public void sync_duplicateEmailsInOnePage_keepsBothRows() throws Exception {
+        enqueuePage(user(1, "George", "george@reqres.in"), user(2, "Gob", "George@reqres.in"));
+        assertEquals(2, sync(false));
+
+        assertEquals("george@reqres.in", userDao.getUserById(1).getEmail());
+        assertNull(userDao.getUserById(2).getEmail());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.easysale.viewmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.easysale.data.UserChangeNotifier;
+import com.example.easysale.data.UserDatabase;
+import com.example.easysale.model.User;
+import com.example.easysale.utils.AppExecutors;
+import com.example.easysale.utils.PriorityExecutor.Priority;
+import com.example.easysale.utils.SerialExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Counts what the list screen receives from a view model over an in-memory database:
+// every user action must reach observers as exactly one PageState
+@RunWith(AndroidJUnit4.class)
+public class UserViewModelTest {
+    private static final int USER_COUNT = 20;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private UserDatabase database;
+    private SerialExecutor lane;
+    private UserViewModel viewModel;
+    private final List<PageState> emissions = new CopyOnWriteArrayList<>();
+    private final Observer<PageState> observer = emissions::add;
+
+    @Before
+    public void setUp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(application, UserDatabase.class).build();
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= USER_COUNT; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setFirstName("User" + id);
+            user.setLastName("Bluth");
+            user.setEmail("user" + id + "@reqres.in");
+            users.add(user);
+        }
+        database.userDao().upsertAll(users);
+        lane = AppExecutors.getInstance().newSerialLane("UserViewModelTest");
+        viewModel = new UserViewModel(application, database, lane);
+        viewModel.getPageState().observeForever(observer);
+    }
+
+    @After
+    public void tearDown() {
+        viewModel.getPageState().removeObserver(observer);
+        viewModel.onCleared();
+        database.close();
+    }
+
+    // A LOW task runs after everything of higher priority waiting on the lane; tasks queue follow-ups
+    // (warming), so wait twice
+    private void awaitLane() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            lane.submit("await", Priority.LOW, () -> null).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // A write reaches the view model through Room's invalidation tracker, which may report it after
+    // the write returned: wait for the reload it triggers, then for anything it queued
+    private void awaitWriteReload() throws Exception {
+        for (int i = 0; i < 50 && emissions.isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        awaitLane();
+    }
+
+    // An empty search is what the screen runs to show the whole list
+    private void showFirstPage() throws Exception {
+        viewModel.searchUsers("");
+        awaitLane();
+        emissions.clear();
+    }
+
+    @Test
+    public void firstLoad_emitsOneCompleteSnapshot() throws Exception {
+        viewModel.searchUsers("");
+        awaitLane();
+
+        assertEquals(1, emissions.size());
+        PageState state = emissions.get(0);
+        assertEquals(1, state.getCurrentPage());
+        assertEquals(4, state.getTotalPages());
+        assertEquals(USER_COUNT, state.getTotalUsers());
+        assertEquals(USER_COUNT, state.getUsers().get(0).getId());
+    }
+
+    @Test
+    public void swipeToWarmedPage_emitsOnceAndConfirmationNothing() throws Exception {
+        showFirstPage();
+
+        viewModel.loadPage(2);
+        // Served from memory within the call
+        assertEquals(1, emissions.size());
+        awaitLane();
+
+        assertEquals(1, emissions.size());
+        assertEquals(2, emissions.get(0).getCurrentPage());
+        assertEquals(4, emissions.get(0).getTotalPages());
+    }
+
+    @Test
+    public void swipeBackAndForth_endsOnTheLastPageShown() throws Exception {
+        showFirstPage();
+
+        viewModel.loadPage(2);
+        viewModel.loadPage(1);
+        viewModel.loadPage(2);
+        awaitLane();
+
+        assertEquals(3, emissions.size());
+        PageState last = viewModel.getPageState().getValue();
+        assertSame(emissions.get(2), last);
+        assertEquals(2, last.getCurrentPage());
+    }
+
+    @Test
+    public void search_emitsOnce() throws Exception {
+        showFirstPage();
+
+        viewModel.searchUsers("user1");
+        awaitLane();
+
+        // User1 and User10 to User19
+        assertEquals(1, emissions.size());
+        assertEquals(11, emissions.get(0).getTotalUsers());
+    }
+
+    @Test
+    public void editOfVisibleUser_emitsOnce() throws Exception {
+        showFirstPage();
+
+        User user = database.userDao().getUserById(USER_COUNT);
+        user.setFirstName("Buster");
+        // Reported the way every writer does, inside the transaction
+        database.runInTransaction(() -> {
+            database.userDao().update(user);
+            UserChangeNotifier.getInstance().notifyChanged(Collections.singletonList(USER_COUNT));
+        });
+        awaitWriteReload();
+
+        assertEquals(1, emissions.size());
+        assertEquals("Buster", emissions.get(0).getUsers().get(0).getFirstName());
+    }
+
+    @Test
+    public void unreportedWrite_stillReachesTheScreen() throws Exception {
+        showFirstPage();
+        viewModel.searchUsers("user1");
+        awaitLane();
+        emissions.clear();
+
+        // Like clearing the table after a failed sync: Room reports it, nobody names the rows
+        database.userDao().deleteAll();
+        awaitWriteReload();
+
+        assertEquals(1, emissions.size());
+        assertEquals(0, emissions.get(0).getTotalUsers());
+        assertTrue(emissions.get(0).getUsers().isEmpty());
+    }
+}
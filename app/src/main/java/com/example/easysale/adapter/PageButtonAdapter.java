@@ -0,0 +1,122 @@
+package com.example.easysale.adapter;
+
+import android.content.Context;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.ViewGroup;
+import android.widget.Button;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.easysale.R;
+
+// Page number strip backed by a RecyclerView: only the visible buttons exist, whatever the page count.
+// Items carry no data besides their position (page = position + 1), so changing the count or the
+// selection only touches the affected items.
+public class PageButtonAdapter extends RecyclerView.Adapter<PageButtonAdapter.PageViewHolder> {
+    private static final int BUTTON_SIZE_DP = 36;
+    private static final int BUTTON_MARGIN_DP = 4;
+
+    private final OnPageClickListener pageClickListener;
+    private int pageCount = 0;
+    private int selectedPage = 1;
+
+    public interface OnPageClickListener {
+        void onPageClick(int page);
+    }
+
+    public PageButtonAdapter(OnPageClickListener pageClickListener) {
+        this.pageClickListener = pageClickListener;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public void setPageCount(int newPageCount) {
+        if (newPageCount == pageCount) return;
+        int oldPageCount = pageCount;
+        pageCount = newPageCount;
+        if (newPageCount > oldPageCount) {
+            notifyItemRangeInserted(oldPageCount, newPageCount - oldPageCount);
+        } else {
+            notifyItemRangeRemoved(newPageCount, oldPageCount - newPageCount);
+        }
+    }
+
+    public void setSelectedPage(int page) {
+        if (page == selectedPage) return;
+        int previousPage = selectedPage;
+        selectedPage = page;
+        if (previousPage >= 1 && previousPage <= pageCount) {
+            notifyItemChanged(previousPage - 1);
+        }
+        if (page >= 1 && page <= pageCount) {
+            notifyItemChanged(page - 1);
+        }
+    }
+
+    @NonNull
+    @Override
+    public PageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        Context context = parent.getContext();
+        Button pageButton = new Button(context);
+        pageButton.setTextColor(ContextCompat.getColor(context, android.R.color.black));
+        pageButton.setBackgroundResource(R.drawable.pagination_button);
+
+        RecyclerView.LayoutParams params = new RecyclerView.LayoutParams(
+                dpToPx(context, BUTTON_SIZE_DP), dpToPx(context, BUTTON_SIZE_DP));
+        params.setMargins(dpToPx(context, BUTTON_MARGIN_DP), 0, dpToPx(context, BUTTON_MARGIN_DP), 0);
+        pageButton.setLayoutParams(params);
+
+        pageButton.setGravity(Gravity.CENTER);
+        pageButton.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+        pageButton.setIncludeFontPadding(false);
+        pageButton.setPadding(0, 0, 0, 0);
+
+        // Autosizing is configured once per recycled button instead of once per page
+        TextViewCompat.setAutoSizeTextTypeUniformWithConfiguration(
+                pageButton, 8, 14, 1, TypedValue.COMPLEX_UNIT_SP);
+
+        PageViewHolder holder = new PageViewHolder(pageButton);
+        pageButton.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && pageClickListener != null) {
+                pageClickListener.onPageClick(position + 1);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PageViewHolder holder, int position) {
+        int page = position + 1;
+        boolean isSelected = page == selectedPage;
+        Context context = holder.pageButton.getContext();
+        holder.pageButton.setText(String.valueOf(page));
+        holder.pageButton.setEnabled(!isSelected);
+        holder.pageButton.setTextColor(ContextCompat.getColor(context, isSelected ? R.color.light : android.R.color.black));
+        holder.pageButton.setBackgroundResource(isSelected ? R.drawable.pagination_button_selected : R.drawable.pagination_button);
+    }
+
+    @Override
+    public int getItemCount() {
+        return pageCount;
+    }
+
+    public static int dpToPx(Context context, int dp) {
+        float density = context.getResources().getDisplayMetrics().density;
+        return Math.round((float) dp * density);
+    }
+
+    static class PageViewHolder extends RecyclerView.ViewHolder {
+        Button pageButton;
+
+        PageViewHolder(@NonNull Button pageButton) {
+            super(pageButton);
+            this.pageButton = pageButton;
+        }
+    }
+}
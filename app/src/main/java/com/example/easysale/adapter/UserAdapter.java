@@ -6,21 +6,46 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 import com.example.easysale.R;
+import com.example.easysale.avatar.AvatarLoader;
 import com.example.easysale.model.User;
+import com.example.easysale.utils.AppExecutors;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Set;
 
 public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder> {
-    private List<User> users;
+    // Change payloads, so a row only rebinds the part that actually changed
+    private static final int PAYLOAD_TEXT = 1;
+    private static final int PAYLOAD_AVATAR = 1 << 1;
+    private static final int PAYLOAD_SELECTION = 1 << 2;
+
+    private final AsyncListDiffer<User> differ;
     private OnDeleteClickListener deleteListener;
     private OnItemClickListener itemClickListener;
+    // Read from the layout's dimension once, avatars are requested at exactly this size
+    private int avatarSizePx = 0;
+    // Ids of the users picked for a bulk action; kept across pages, the list is in selection mode while not empty
+    private final Set<Integer> selectedIds = new LinkedHashSet<>();
 
     public List<User> getUsers() {
-        return users;
+        return differ.getCurrentList();
     }
 
     public interface OnDeleteClickListener {
@@ -32,50 +57,207 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
     }
 
     public UserAdapter(List<User> users, OnDeleteClickListener deleteListener, OnItemClickListener itemClickListener) {
-        this.users = new ArrayList<>(users);
+        // Diffing is CPU work, it runs on the shared compute pool instead of the differ's own threads
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                        .setBackgroundThreadExecutor(AppExecutors.getInstance().compute())
+                        .build());
         this.deleteListener = deleteListener;
         this.itemClickListener = itemClickListener;
+        differ.submitList(new ArrayList<>(users));
     }
 
     @NonNull
     @Override
     public UserViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.user_item, parent, false);
-        return new UserViewHolder(view);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
-        User user = users.get(position);
-        holder.nameTextView.setText(user.getFirstName() + " " + user.getLastName());
-        holder.emailTextView.setText(user.getEmail());
+        if (avatarSizePx == 0) {
+            avatarSizePx = parent.getResources().getDimensionPixelSize(R.dimen.avatar_row_size);
+        }
+        UserViewHolder holder = new UserViewHolder(view);
+        // Listeners resolve the user at click time, so rows updated through a payload never hold a stale user
         holder.deleteImageView.setOnClickListener(v -> {
-            if (deleteListener != null) {
+            User user = getUserAt(holder.getBindingAdapterPosition());
+            if (user != null && deleteListener != null) {
                 deleteListener.onDeleteClick(user);
             }
         });
         holder.itemView.setOnClickListener(v -> {
-            if (itemClickListener != null) {
+            User user = getUserAt(holder.getBindingAdapterPosition());
+            if (user != null && itemClickListener != null) {
                 itemClickListener.onItemClick(user);
             }
         });
-        Glide.with(holder.itemView.getContext())
-                .load(user.getAvatar())
-                .circleCrop()
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
+        User user = differ.getCurrentList().get(position);
+        bindText(holder, user);
+        bindAvatar(holder, user);
+        bindSelection(holder, user);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull UserViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        User user = differ.getCurrentList().get(position);
+        if ((changes & PAYLOAD_TEXT) != 0) {
+            bindText(holder, user);
+        }
+        if ((changes & PAYLOAD_AVATAR) != 0) {
+            bindAvatar(holder, user);
+        }
+        if ((changes & PAYLOAD_SELECTION) != 0) {
+            bindSelection(holder, user);
+        }
+    }
+
+    private void bindText(UserViewHolder holder, User user) {
+        holder.nameTextView.setText(user.getFirstName() + " " + user.getLastName());
+        holder.emailTextView.setText(user.getEmail());
+    }
+
+    private void bindAvatar(UserViewHolder holder, User user) {
+        AvatarLoader.request(Glide.with(holder.itemView.getContext()), user.getAvatar(), avatarSizePx)
                 .into(holder.avatarImageView);
     }
 
+    // Selected rows are highlighted; while selecting, the per-row delete button is hidden
+    private void bindSelection(UserViewHolder holder, User user) {
+        boolean selected = selectedIds.contains(user.getId());
+        holder.cardView.setCardBackgroundColor(ContextCompat.getColor(holder.itemView.getContext(),
+                selected ? R.color.light : R.color.white));
+        holder.deleteImageView.setVisibility(selectedIds.isEmpty() ? View.VISIBLE : View.INVISIBLE);
+    }
+
+    public boolean isSelecting() {
+        return !selectedIds.isEmpty();
+    }
+
+    // Returns how many users are selected afterwards
+    public int toggleSelection(User user) {
+        boolean wasSelecting = isSelecting();
+        if (!selectedIds.remove(user.getId())) {
+            selectedIds.add(user.getId());
+        }
+        if (wasSelecting != isSelecting()) {
+            // Entering or leaving selection mode changes every row
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        } else {
+            List<User> current = differ.getCurrentList();
+            for (int position = 0; position < current.size(); position++) {
+                if (current.get(position).getId() == user.getId()) {
+                    notifyItemChanged(position, PAYLOAD_SELECTION);
+                    break;
+                }
+            }
+        }
+        return selectedIds.size();
+    }
+
+    public List<Integer> getSelectedIds() {
+        return new ArrayList<>(selectedIds);
+    }
+
+    public void clearSelection() {
+        if (selectedIds.isEmpty()) return;
+        selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+    }
+
+    // For a RecyclerViewPreloader: requests the avatars of rows about to scroll into view, built the same way
+    // as bindAvatar so the bind hits the memory cache. sizePx must be R.dimen.avatar_row_size.
+    public ListPreloader.PreloadModelProvider<User> avatarPreloadProvider(RequestManager glide, int sizePx) {
+        return new ListPreloader.PreloadModelProvider<User>() {
+            @NonNull
+            @Override
+            public List<User> getPreloadItems(int position) {
+                User user = getUserAt(position);
+                return user == null || user.getAvatar() == null ? Collections.emptyList() : Collections.singletonList(user);
+            }
+
+            @Nullable
+            @Override
+            public RequestBuilder<?> getPreloadRequestBuilder(@NonNull User user) {
+                return AvatarLoader.request(glide, user.getAvatar(), sizePx);
+            }
+        };
+    }
+
     @Override
     public int getItemCount() {
-        return users.size();
+        return differ.getCurrentList().size();
     }
 
+    // The diff runs on a background thread; unchanged rows keep their views and loaded avatars
     public void setUsers(List<User> users) {
-        this.users = new ArrayList<>(users);
-        notifyDataSetChanged();
+        List<User> current = differ.getCurrentList();
+        if (!current.isEmpty() && !sharesAnyUser(current, users)) {
+            // Another page: there is nothing to diff, so swap it in this frame instead of after a
+            // round trip through the background thread
+            differ.submitList(null);
+        }
+        differ.submitList(new ArrayList<>(users));
+    }
+
+    private static boolean sharesAnyUser(List<User> current, List<User> users) {
+        for (User user : users) {
+            for (User existing : current) {
+                if (existing.getId() == user.getId()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private User getUserAt(int position) {
+        List<User> current = differ.getCurrentList();
+        return position != RecyclerView.NO_POSITION && position < current.size() ? current.get(position) : null;
     }
 
+    private static final DiffUtil.ItemCallback<User> DIFF_CALLBACK = new DiffUtil.ItemCallback<User>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return oldUser.getId() == newUser.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return textEquals(oldUser, newUser) && Objects.equals(oldUser.getAvatar(), newUser.getAvatar());
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull User oldUser, @NonNull User newUser) {
+            int changes = 0;
+            if (!textEquals(oldUser, newUser)) {
+                changes |= PAYLOAD_TEXT;
+            }
+            if (!Objects.equals(oldUser.getAvatar(), newUser.getAvatar())) {
+                changes |= PAYLOAD_AVATAR;
+            }
+            return changes;
+        }
+
+        private boolean textEquals(User oldUser, User newUser) {
+            return Objects.equals(oldUser.getFirstName(), newUser.getFirstName()) &&
+                    Objects.equals(oldUser.getLastName(), newUser.getLastName()) &&
+                    Objects.equals(oldUser.getEmail(), newUser.getEmail());
+        }
+    };
+
     static class UserViewHolder extends RecyclerView.ViewHolder {
+        CardView cardView;
         ImageView avatarImageView;
         TextView nameTextView;
         TextView emailTextView;
@@ -83,10 +265,11 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
 
         UserViewHolder(@NonNull View itemView) {
             super(itemView);
+            cardView = (CardView) itemView;
             avatarImageView = itemView.findViewById(R.id.avatarImageView);
             nameTextView = itemView.findViewById(R.id.nameTextView);
             emailTextView = itemView.findViewById(R.id.emailTextView);
             deleteImageView = itemView.findViewById(R.id.deleteImageView);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+package com.example.easysale.avatar;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+
+// Cache budgets for Glide. The app shows little besides avatars, so the memory cache holds a couple of
+// screens of them and finished thumbnails survive restarts in their own disk cache.
+@GlideModule
+public final class AvatarGlideModule extends AppGlideModule {
+    private static final String DISK_CACHE_NAME = "avatars";
+    private static final long DISK_CACHE_BYTES = 50L * 1024 * 1024;
+    private static final float MEMORY_CACHE_SCREENS = 2;
+    private static final float BITMAP_POOL_SCREENS = 3;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .setBitmapPoolScreens(BITMAP_POOL_SCREENS)
+                .build();
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME, DISK_CACHE_BYTES));
+        builder.setLogLevel(Log.ERROR);
+    }
+
+    // No library modules declared in manifests, skip scanning for them
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
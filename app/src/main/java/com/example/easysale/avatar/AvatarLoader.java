@@ -0,0 +1,35 @@
+package com.example.easysale.avatar;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.example.easysale.R;
+
+// Builds every avatar request, so binding, preloading and the edit screen share request options and
+// therefore cache keys. Avatars are decoded straight at the size they are shown at and the circle crop
+// is cached as a finished thumbnail, a warm bind never decodes or transforms the source again.
+public final class AvatarLoader {
+
+    private AvatarLoader() {
+    }
+
+    public static RequestBuilder<Drawable> request(@NonNull RequestManager glide, @Nullable String avatarUri, int sizePx) {
+        return glide.load(avatarUri)
+                .override(sizePx)
+                .circleCrop()
+                .diskCacheStrategy(isRemote(avatarUri) ? DiskCacheStrategy.ALL : DiskCacheStrategy.RESOURCE)
+                .placeholder(R.drawable.avatar_placeholder)
+                .error(R.drawable.avatar_placeholder);
+    }
+
+    // Remote sources are kept too (ALL), so another size doesn't go back to the network; local files and
+    // resources are already on disk and only their thumbnails are cached (RESOURCE)
+    private static boolean isRemote(@Nullable String avatarUri) {
+        return avatarUri != null && (avatarUri.startsWith("http://") || avatarUri.startsWith("https://"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.easysale.avatar;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.example.easysale.R;
+import com.example.easysale.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Loads list avatars into Glide's memory cache before their rows are shown, e.g. for the pages next to
+// the visible one. Requests match UserAdapter's, and Glide skips the ones that are already cached.
+public class AvatarPreloader {
+    private final RequestManager glide;
+    private final int sizePx;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public AvatarPreloader(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.glide = Glide.with(appContext);
+        this.sizePx = appContext.getResources().getDimensionPixelSize(R.dimen.avatar_row_size);
+    }
+
+    // Can be called from any thread, the requests are started on the main thread
+    public void preload(List<User> users) {
+        final List<String> avatars = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (user.getAvatar() != null) {
+                avatars.add(user.getAvatar());
+            }
+        }
+        if (avatars.isEmpty()) return;
+        mainHandler.post(() -> {
+            for (String avatar : avatars) {
+                AvatarLoader.request(glide, avatar, sizePx).preload();
+            }
+        });
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.easysale.avatar;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.easysale.utils.AppExecutors;
+import com.example.easysale.utils.PriorityExecutor.Priority;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.RejectedExecutionException;
+
+// Turns a picked image into an avatar file owned by the app.
+// The source is decoded with inSampleSize (never at full resolution), turned upright, scaled to at most
+// MAX_SIZE_PX on its longer side and stored as a JPEG named after the SHA-256 of its bytes. Rows then
+// reference that file instead of a gallery URI whose permission can lapse, and the same picture chosen
+// for several users is stored once.
+public class AvatarStore {
+    private static final String TAG = "AvatarStore";
+    private static final String DIR = "avatars";
+    // Covers the 120dp edit screen avatar on the densest screens
+    static final int MAX_SIZE_PX = 512;
+    private static final int JPEG_QUALITY = 85;
+
+    public interface OnIngestListener {
+        // avatarUri is a file:// URI to store in User.avatar
+        void onIngested(String avatarUri);
+        void onError(String error);
+    }
+
+    private final ContentResolver contentResolver;
+    private final File directory;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public AvatarStore(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.contentResolver = appContext.getContentResolver();
+        this.directory = new File(appContext.getFilesDir(), DIR);
+    }
+
+    // Decoding and compressing is CPU work, it runs on the compute pool; the listener is called on the main thread
+    public void ingest(final Uri source, final OnIngestListener listener) {
+        try {
+            AppExecutors.getInstance().compute().execute("ingestAvatar", Priority.HIGH, () -> {
+                try {
+                    String avatarUri = ingestNow(source);
+                    mainHandler.post(() -> listener.onIngested(avatarUri));
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "ingest: Unable to store " + source, e);
+                    mainHandler.post(() -> listener.onError("Unable to use this picture"));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            listener.onError("Too busy, please try again");
+        }
+    }
+
+    // Must be called off the main thread
+    String ingestNow(Uri source) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(source)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not an image: " + source);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, MAX_SIZE_PX);
+        Bitmap decoded;
+        try (InputStream in = open(source)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Unable to decode " + source);
+        }
+
+        Bitmap avatar = uprightAndScaled(decoded, readRotation(source));
+        byte[] jpeg;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            avatar.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            jpeg = out.toByteArray();
+        } finally {
+            avatar.recycle();
+            if (avatar != decoded) {
+                decoded.recycle();
+            }
+        }
+
+        File file = store(jpeg);
+        Log.d(TAG, "ingestNow: " + bounds.outWidth + "x" + bounds.outHeight + " stored as " + file.getName()
+                + " (" + jpeg.length / 1024 + "KB)");
+        return Uri.fromFile(file).toString();
+    }
+
+    // Largest power of two that keeps the decoded image at least targetPx on its longer side
+    static int calculateInSampleSize(int width, int height, int targetPx) {
+        int longer = Math.max(width, height);
+        int sampleSize = 1;
+        while (longer / (sampleSize * 2) >= targetPx) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private InputStream open(Uri source) throws IOException {
+        InputStream in = contentResolver.openInputStream(source);
+        if (in == null) {
+            throw new IOException("Unable to open " + source);
+        }
+        return in;
+    }
+
+    // Camera photos are often stored sideways with the rotation in their EXIF data
+    private int readRotation(Uri source) {
+        try (InputStream in = open(source)) {
+            int orientation = new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Rotation and downscale in a single pass; returns the bitmap itself if neither is needed
+    private static Bitmap uprightAndScaled(Bitmap bitmap, int rotation) {
+        int longer = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        float scale = longer > MAX_SIZE_PX ? (float) MAX_SIZE_PX / longer : 1f;
+        if (rotation == 0 && scale == 1f) {
+            return bitmap;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postScale(scale, scale);
+        matrix.postRotate(rotation);
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+
+    // Content addressed: an identical avatar already on disk is reused, otherwise the file is written
+    // under a temporary name and renamed, so a half written file is never referenced
+    private File store(byte[] jpeg) throws IOException {
+        File file = new File(directory, sha256(jpeg) + ".jpg");
+        if (file.exists()) {
+            return file;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        File temp = File.createTempFile("avatar", ".tmp", directory);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(jpeg);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            if (!file.exists()) {
+                throw new IOException("Unable to store " + file);
+            }
+        }
+        return file;
+    }
+
+    static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.easysale.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// Users whose create or delete the server acknowledged. The demo backend answers mutations without
+// keeping them, so its lists keep lacking users created here and keep listing users deleted here.
+// Delta syncs leave those users alone instead of deleting or bringing them back.
+// Tombstones are forgotten once the server stops listing the user; created ids only go away when the
+// user is deleted here. Kept in SharedPreferences so the database schema stays as it is.
+public class AcknowledgedChanges {
+    private static final String PREFS_NAME = "acknowledged_changes";
+    private static final String CREATED = "created";
+    private static final String DELETED = "deleted";
+
+    private static volatile AcknowledgedChanges INSTANCE;
+
+    private final SharedPreferences prefs;
+
+    public static AcknowledgedChanges getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AcknowledgedChanges.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AcknowledgedChanges(
+                            context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    AcknowledgedChanges(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    public synchronized void recordCreated(int userId) {
+        Set<String> created = new HashSet<>(prefs.getStringSet(CREATED, new HashSet<>()));
+        Set<String> deleted = new HashSet<>(prefs.getStringSet(DELETED, new HashSet<>()));
+        created.add(String.valueOf(userId));
+        deleted.remove(String.valueOf(userId));
+        prefs.edit().putStringSet(CREATED, created).putStringSet(DELETED, deleted).apply();
+    }
+
+    public synchronized void recordDeleted(int userId) {
+        Set<String> created = new HashSet<>(prefs.getStringSet(CREATED, new HashSet<>()));
+        Set<String> deleted = new HashSet<>(prefs.getStringSet(DELETED, new HashSet<>()));
+        created.remove(String.valueOf(userId));
+        deleted.add(String.valueOf(userId));
+        prefs.edit().putStringSet(CREATED, created).putStringSet(DELETED, deleted).apply();
+    }
+
+    // Ids a delta sync must not delete
+    public synchronized Set<Integer> getCreatedIds() {
+        return read(CREATED);
+    }
+
+    // Ids a sync must not insert again
+    public synchronized Set<Integer> getDeletedIds() {
+        return read(DELETED);
+    }
+
+    public synchronized void forgetDeleted(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) return;
+        Set<String> deleted = new HashSet<>(prefs.getStringSet(DELETED, new HashSet<>()));
+        for (int id : userIds) {
+            deleted.remove(String.valueOf(id));
+        }
+        prefs.edit().putStringSet(DELETED, deleted).apply();
+    }
+
+    private Set<Integer> read(String key) {
+        Set<Integer> ids = new HashSet<>();
+        for (String id : prefs.getStringSet(key, new HashSet<>())) {
+            ids.add(Integer.parseInt(id));
+        }
+        return ids;
+    }
+}
\ No newline at end of file
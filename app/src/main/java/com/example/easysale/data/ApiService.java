@@ -3,6 +3,7 @@ package com.example.easysale.data;
 import com.example.easysale.model.User;
 import com.example.easysale.model.UserResponse;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
@@ -11,12 +12,18 @@ import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface ApiService {
     // Fetch users with pagination
     @GET("users")
     Call<UserResponse> getUsers(@Query("page") int page, @Query("per_page") int perPage);
 
+    // Same page as getUsers, but the body is left unread so it can be decoded as a stream
+    @Streaming
+    @GET("users")
+    Call<ResponseBody> streamUsers(@Query("page") int page, @Query("per_page") int perPage);
+
     // Delete a user by ID
     @DELETE("users/{id}")
     Call<Void> deleteUser(@Path("id") int userId);
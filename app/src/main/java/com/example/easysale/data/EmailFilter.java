@@ -0,0 +1,168 @@
+package com.example.easysale.data;
+
+import com.example.easysale.model.User;
+
+import java.util.List;
+import java.util.Locale;
+
+// In-memory Bloom filter over every email in the users table, so the uniqueness check on save can
+// answer "definitely not taken" without a query. Bits are only ever added: emails of deleted or edited
+// users stay in until the next rebuild and just cost one indexed lookup (a false positive).
+// Writers add emails after their transaction commits; the unique index on users.email remains the
+// actual guarantee.
+public class EmailFilter {
+    // Around 1% false positives at full capacity
+    private static final int BITS_PER_EMAIL = 10;
+    private static final int HASHES = 7;
+    private static final int MIN_CAPACITY = 1024;
+
+    private static volatile EmailFilter INSTANCE;
+
+    // Guards current and pending
+    private final Object lock = new Object();
+    // Serializes rebuilds, never held by writers
+    private final Object loadLock = new Object();
+    // Null until the first check loads it, or after it filled up
+    private Bloom current;
+    // Filter being loaded from the database; emails added meanwhile go into it as well
+    private Bloom pending;
+
+    public static EmailFilter getInstance() {
+        if (INSTANCE == null) {
+            synchronized (EmailFilter.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new EmailFilter();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    EmailFilter() {
+    }
+
+    // Call after the write that stored the email has committed
+    public void add(String email) {
+        if (email == null) return;
+        String key = key(email);
+        synchronized (lock) {
+            if (current != null) {
+                current.add(key);
+                if (current.isFull()) {
+                    // False positive rate is climbing, the next check rebuilds at twice the size
+                    current = null;
+                }
+            }
+            if (pending != null) {
+                pending.add(key);
+            }
+        }
+    }
+
+    public void addAll(List<User> users) {
+        for (User user : users) {
+            add(user.getEmail());
+        }
+    }
+
+    // False means no user has this email (ignoring case); true means the database has to be asked.
+    // The first call loads every email, so this must run off the main thread.
+    public boolean mightContain(UserDao userDao, String email) {
+        if (email == null) return false;
+        Bloom filter;
+        synchronized (lock) {
+            filter = current;
+        }
+        if (filter == null) {
+            filter = load(userDao);
+        }
+        synchronized (lock) {
+            return filter.mightContain(key(email));
+        }
+    }
+
+    private Bloom load(UserDao userDao) {
+        synchronized (loadLock) {
+            synchronized (lock) {
+                if (current != null) return current;
+            }
+            Bloom loaded = new Bloom(Math.max(MIN_CAPACITY, 2 * userDao.countUsers()));
+            // Registered before reading, so a write that commits after the read is still caught by add()
+            synchronized (lock) {
+                pending = loaded;
+            }
+            List<String> emails = userDao.getAllEmails();
+            synchronized (lock) {
+                for (String email : emails) {
+                    if (email != null) {
+                        loaded.add(key(email));
+                    }
+                }
+                pending = null;
+                current = loaded;
+            }
+            return loaded;
+        }
+    }
+
+    // Same folding as SQLite's NOCASE for ASCII; anything folded beyond that can only add false positives
+    private static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Bloom {
+        private final long[] words;
+        private final int bitCount;
+        private final int capacity;
+        private int count;
+
+        Bloom(int capacity) {
+            this.capacity = capacity;
+            this.words = new long[(capacity * BITS_PER_EMAIL + 63) / 64];
+            this.bitCount = words.length * 64;
+        }
+
+        void add(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.abs((h1 + i * h2) % bitCount);
+                words[bit >>> 6] |= 1L << bit;
+            }
+            count++;
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.abs((h1 + i * h2) % bitCount);
+                if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isFull() {
+            return count > capacity;
+        }
+
+        // FNV-1a over the chars followed by a 64-bit finalizer, the two halves give the k probe positions
+        private static long hash64(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -1,36 +1,57 @@
 package com.example.easysale.data;
 
 import android.content.Context;
-import android.os.AsyncTask;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteConstraintException;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
+import com.example.easysale.model.OutboxEntry;
+import com.example.easysale.model.User;
+import com.example.easysale.utils.AppExecutors;
+import com.example.easysale.utils.PriorityExecutor.Priority;
+import com.example.easysale.utils.SerialExecutor;
 
-import java.util.List;
 import java.util.ArrayList;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
-import com.example.easysale.model.User;
-import com.example.easysale.model.UserResponse;
+import java.util.List;
 
 public class FetchUsers {
     private final ApiService apiService;
+    private final UserDatabase database;
     private final UserDao userDao;
+    private final UserSyncEngine syncEngine;
+    private final UserOutbox outbox;
+    private final IdAllocator idAllocator;
+    private final EmailFilter emailFilter = EmailFilter.getInstance();
+    // Shared with the sync engine, every Room write in the app goes through this one lane
+    private final SerialExecutor dbExecutor = AppExecutors.getInstance().database();
     private static final String TAG = "FetchUsers";
+    // Page size requested by syncs and how many pages may be in flight at once. Far above the 6 rows a
+    // screen shows: every page is a round trip, and a server that serves less reports its own per_page.
+    private static final int SYNC_PAGE_SIZE = 100;
+    private static final int SYNC_MAX_IN_FLIGHT = 4;
+    // Stays below SQLite's limit on bound parameters per statement
+    private static final int DELETE_CHUNK_SIZE = 500;
     boolean initialCheckDone = false;
     private Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     public FetchUsers(Context context) {
         this.context = context;
-        apiService = RetrofitClient.getClient().create(ApiService.class);
-        userDao = UserDatabase.getDatabase(context).userDao();
+        apiService = RetrofitClient.getClient(context).create(ApiService.class);
+        database = UserDatabase.getDatabase(context);
+        userDao = database.userDao();
+        syncEngine = new UserSyncEngine(apiService, database, AcknowledgedChanges.getInstance(context),
+                SYNC_PAGE_SIZE, SYNC_MAX_IN_FLIGHT);
+        outbox = UserOutbox.getInstance(context);
+        idAllocator = IdAllocator.getInstance(context);
     }
 
     public interface OnUsersFetchListener {
-        void onUsersFetched(List<User> users, int total);
+        // Users are read page by page from Room, the listener only learns how many there are
+        void onUsersFetched(int total);
         void onError(String error);
     }
 
@@ -49,157 +70,215 @@ public class FetchUsers {
         void onError(String error);
     }
 
+    public interface OnUsersUpdateListener {
+        void onUsersUpdated(int count);
+        void onError(String error);
+    }
+
+    public interface OnUsersDeleteListener {
+        void onUsersDeleted(int count);
+        void onError(String error);
+    }
+
     // Fetch all users from the API and local database
     public void getAllUsers(final OnUsersFetchListener listener) {
         if (!initialCheckDone) {
             initialCheckDone = true;
-            AsyncTask.execute(() -> checkAndFetchUsers(listener));
+            // Send whatever a previous session couldn't
+            outbox.requestDrain();
+            dbExecutor.execute("checkAndFetchUsers", Priority.HIGH, () -> checkAndFetchUsers(listener));
         } else {
-            AsyncTask.execute(() -> fetchLocalUsers(listener));
+            dbExecutor.execute("fetchLocalUsers", Priority.HIGH, () -> fetchLocalUsers(listener));
         }
     }
 
-    // Check if there are any users in the local database and fetch them from the API if empty
+    // Check if there are any users in the local database and fetch them from the API if empty.
+    // Otherwise (a previous session or the bundled database) the list is shown from disk right away
+    // and a delta sync brings it up to date behind it; changed rows reach the screen through Room.
+    // Local changes survive it even though the demo backend doesn't keep them (see AcknowledgedChanges).
     private void checkAndFetchUsers(OnUsersFetchListener listener) {
-        List<User> localUsers = userDao.getAllUsers();
-        if (localUsers.isEmpty()) {
-            final List<User> allUsers = new ArrayList<>();
-            fetchUsersRecursively(1, allUsers, listener);
+        int localCount = userDao.countUsers();
+        if (localCount == 0) {
+            syncUsersFromApi(listener);
         } else {
-            listener.onUsersFetched(localUsers, localUsers.size());
+            listener.onUsersFetched(localCount);
+            syncEngine.deltaSync(new UserSyncEngine.OnSyncListener() {
+                @Override
+                public void onSyncComplete(int changedRows) {
+                    Log.d(TAG, "checkAndFetchUsers: Background sync changed " + changedRows + " rows");
+                }
+
+                @Override
+                public void onError(String error) {
+                    // The local copy is still usable, no need to bother the user
+                    Log.w(TAG, "checkAndFetchUsers: Background sync failed: " + error);
+                }
+            });
         }
     }
 
-    // Fetch users from the local database
+    // Count the users in the local database
     private void fetchLocalUsers(OnUsersFetchListener listener) {
-        List<User> localUsers = userDao.getAllUsers();
-        listener.onUsersFetched(localUsers, localUsers.size());
+        listener.onUsersFetched(userDao.countUsers());
     }
 
-    // Recursive method to fetch users from the API
-    private void fetchUsersRecursively(final int page, final List<User> allUsers, final OnUsersFetchListener listener) {
-        apiService.getUsers(page, 6).enqueue(new Callback<UserResponse>() {
+    // Initial sync: stream every page from the API into Room, then serve the local copy
+    private void syncUsersFromApi(final OnUsersFetchListener listener) {
+        syncEngine.sync(new UserSyncEngine.OnSyncListener() {
             @Override
-            public void onResponse(@NonNull Call<UserResponse> call, @NonNull Response<UserResponse> response) {
-                Log.d(TAG, "fetchUsersRecursively: Response code: " + response.code());
-                Log.d(TAG, "fetchUsersRecursively: Response body: " + response.body().getData());
-                if (response.isSuccessful() && response.body() != null) {
-                    List<User> users = response.body().getData();
-                    allUsers.addAll(users);
-                    if (users.size() == 6) {
-                        fetchUsersRecursively(page + 1, allUsers, listener);
-                    } else {
-                        AsyncTask.execute(() -> {
-                            userDao.deleteAll();
-                            userDao.insertAll(allUsers);
-                        });
-                        listener.onUsersFetched(allUsers, allUsers.size());
-                    }
-                } else {
-                    String errorMsg = "Unable to fetch users. Please try again later.";
-                    showToast(errorMsg);
-                    listener.onError(errorMsg);
-                }
+            public void onSyncComplete(int changedRows) {
+                fetchLocalUsers(listener);
             }
 
             @Override
-            public void onFailure(@NonNull Call<UserResponse> call, @NonNull Throwable throwable) {
-                String errorMsg = "Network error. Please check your connection and try again.";
-                showToast(errorMsg);
-                listener.onError(errorMsg);
+            public void onError(String error) {
+                // Drop the partially synced pages so the next launch retries the full sync
+                dbExecutor.execute("deleteAll", Priority.NORMAL, () -> database.runInTransaction(() -> {
+                    userDao.deleteAll();
+                    UserChangeNotifier.getInstance().notifyAllChanged();
+                }));
+                showToast(error);
+                listener.onError(error);
             }
         });
     }
 
-    public void createUser(User user, final OnUserCreateListener listener) {
-        apiService.createUser(user).enqueue(new Callback<User>() {
+    // Delta sync against the API, run from the list screen's refresh action: only rows whose content
+    // changed on the server are rewritten. The listener is only called back with the local users when something actually changed.
+    public void refreshUsers(final OnUsersFetchListener listener) {
+        syncEngine.deltaSync(new UserSyncEngine.OnSyncListener() {
             @Override
-            public void onResponse(@NonNull Call<User> call, @NonNull Response<User> response) {
-                Log.d(TAG, "createUser: Response code: " + response.code());
-                Log.d(TAG, "createUser: " + response.body().getFirstName() + " " + response.body().getLastName() + ", email: " + response.body().getEmail());
-                if (response.isSuccessful() && response.body() != null) {
-                    User createdUser = response.body();
-                    AsyncTask.execute(() -> {
-                        int newID = userDao.getMaxUserId() + 1;
-                        Log.d(TAG, "createUser: Generated new ID: " + newID);
-                        createdUser.setId(newID);
-                        userDao.insert(createdUser);
-                    });
-                    listener.onUserCreated(createdUser);
-                } else {
-                    String errorMsg = "Unable to create user. Please try again.";
-                    showToast(errorMsg);
-                    listener.onError(errorMsg);
+            public void onSyncComplete(int changedRows) {
+                Log.d(TAG, "refreshUsers: " + changedRows + " rows changed");
+                if (changedRows > 0) {
+                    fetchLocalUsers(listener);
                 }
             }
 
             @Override
-            public void onFailure(@NonNull Call<User> call, @NonNull Throwable t) {
-                Log.e(TAG, "Create user failed", t);
-                String errorMsg = "Network error. User creation failed. Please try again.";
-                showToast(errorMsg);
-                listener.onError(errorMsg);
+            public void onError(String error) {
+                showToast(error);
+                listener.onError(error);
             }
         });
     }
 
-    public void updateUser(User user, final OnUserUpdateListener listener) {
-        apiService.updateUser(user.getId(), user).enqueue(new Callback<User>() {
-            @Override
-            public void onResponse(@NonNull Call<User> call, @NonNull Response<User> response) {
-                Log.d(TAG, "updateUser: Response code: " + response.code());
-                Log.d(TAG, "updateUser: name: " + response.body().getFirstName() + " " + response.body().getLastName() + ", email: " + response.body().getEmail() + "");
-                if (response.isSuccessful() && response.body() != null) {
-                    User updatedUser = response.body();
-                    user.setFirstName(updatedUser.getFirstName());
-                    user.setLastName(updatedUser.getLastName());
-                    user.setEmail(updatedUser.getEmail());
-                    AsyncTask.execute(() -> userDao.update(user));
-                    listener.onUserUpdated(user);
-                } else {
-                    String errorMsg = "Unable to update user. Please try again.";
-                    showToast(errorMsg);
-                    listener.onError(errorMsg);
-                }
+    // Mutations are local first: the row is written to Room and queued in the outbox in one transaction,
+    // the listener hears back as soon as that commits and UserOutbox sends the change in the background
+    public void createUser(User user, final OnUserCreateListener listener) {
+        dbExecutor.execute("createUser", Priority.HIGH, () -> {
+            try {
+                outbox.record(OutboxEntry.CREATE, () -> {
+                    int newID = idAllocator.nextUserId();
+                    Log.d(TAG, "createUser: Allocated new ID: " + newID);
+                    user.setId(newID);
+                    userDao.insert(user);
+                    return newID;
+                });
+            } catch (SQLiteConstraintException e) {
+                Log.w(TAG, "createUser: Email already taken: " + user.getEmail());
+                listener.onError("Email is already taken");
+                return;
+            } catch (SQLException e) {
+                Log.e(TAG, "createUser: Local write failed", e);
+                listener.onError("Unable to create user. Please try again.");
+                return;
             }
+            emailFilter.add(user.getEmail());
+            listener.onUserCreated(user);
+        });
+    }
 
-            @Override
-            public void onFailure(@NonNull Call<User> call, @NonNull Throwable t) {
-                Log.e(TAG, "Update failed", t);
-                String errorMsg = "Network error. User update failed. Please try again.";
-                showToast(errorMsg);
-                listener.onError(errorMsg);
+    public void updateUser(User user, final OnUserUpdateListener listener) {
+        dbExecutor.execute("updateUser", Priority.HIGH, () -> {
+            try {
+                outbox.record(OutboxEntry.UPDATE, () -> {
+                    userDao.update(user);
+                    return user.getId();
+                });
+            } catch (SQLiteConstraintException e) {
+                Log.w(TAG, "updateUser: Email already taken: " + user.getEmail());
+                listener.onError("Email is already taken");
+                return;
+            } catch (SQLException e) {
+                Log.e(TAG, "updateUser: Local write failed", e);
+                listener.onError("Unable to update user. Please try again.");
+                return;
             }
+            emailFilter.add(user.getEmail());
+            Log.d(TAG, "updateUser: name: " + user.getFirstName() + " " + user.getLastName() + ", email: " + user.getEmail());
+            listener.onUserUpdated(user);
         });
     }
 
     public void deleteUser(User user, final OnUserDeleteListener listener) {
-        apiService.deleteUser(user.getId()).enqueue(new Callback<Void>() {
-            @Override
-            public void onResponse(@NonNull Call<Void> call, @NonNull Response<Void> response) {
-                Log.d(TAG, "deleteUser: Response code: " + response.code());
-                Log.d(TAG, "deleteUser: " + user.getFirstName() + " " + user.getLastName());
-
-                if (response.isSuccessful()) {
-                    AsyncTask.execute(() -> userDao.delete(user));
-                    listener.onUserDeleted();
-                } else {
-                    String errorMsg = "Unable to delete user. Please try again.";
-                    showToast(errorMsg);
-                    listener.onError(errorMsg);
-                }
+        dbExecutor.execute("deleteUser", Priority.HIGH, () -> {
+            try {
+                outbox.record(OutboxEntry.DELETE, () -> {
+                    userDao.delete(user);
+                    return user.getId();
+                });
+            } catch (SQLException e) {
+                Log.e(TAG, "deleteUser: Local write failed", e);
+                listener.onError("Unable to delete user. Please try again.");
+                return;
+            }
+            Log.d(TAG, "deleteUser: " + user.getFirstName() + " " + user.getLastName());
+            listener.onUserDeleted();
+        });
+    }
+
+    // Batch edits: every row is written in one transaction, all or nothing, so observers of the users
+    // table see one change and the list is reloaded once; the outbox then sends the requests concurrently
+    public void updateUsers(List<User> users, final OnUsersUpdateListener listener) {
+        dbExecutor.execute("updateUsers", Priority.HIGH, () -> {
+            try {
+                outbox.recordAll(OutboxEntry.UPDATE, () -> {
+                    userDao.updateAll(users);
+                    List<Integer> ids = new ArrayList<>(users.size());
+                    for (User user : users) {
+                        ids.add(user.getId());
+                    }
+                    return ids;
+                });
+            } catch (SQLiteConstraintException e) {
+                Log.w(TAG, "updateUsers: An email is already taken");
+                listener.onError("Email is already taken");
+                return;
+            } catch (SQLException e) {
+                Log.e(TAG, "updateUsers: Local write failed", e);
+                listener.onError("Unable to update users. Please try again.");
+                return;
+            }
+            for (User user : users) {
+                emailFilter.add(user.getEmail());
             }
+            Log.d(TAG, "updateUsers: " + users.size() + " users");
+            listener.onUsersUpdated(users.size());
+        });
+    }
 
-            @Override
-            public void onFailure(@NonNull Call<Void> call, @NonNull Throwable t) {
-                String errorMsg = "Network error. User deletion failed. Please try again.";
-                showToast(errorMsg);
-                listener.onError(errorMsg);
+    public void deleteUsers(List<Integer> userIds, final OnUsersDeleteListener listener) {
+        dbExecutor.execute("deleteUsers", Priority.HIGH, () -> {
+            try {
+                outbox.recordAll(OutboxEntry.DELETE, () -> {
+                    for (int i = 0; i < userIds.size(); i += DELETE_CHUNK_SIZE) {
+                        userDao.deleteByIds(userIds.subList(i, Math.min(i + DELETE_CHUNK_SIZE, userIds.size())));
+                    }
+                    return userIds;
+                });
+            } catch (SQLException e) {
+                Log.e(TAG, "deleteUsers: Local write failed", e);
+                listener.onError("Unable to delete users. Please try again.");
+                return;
             }
+            Log.d(TAG, "deleteUsers: " + userIds.size() + " users");
+            listener.onUsersDeleted(userIds.size());
         });
     }
 
+    // Sync errors can be reported from a background thread, toasts have to be shown on the main thread
     private void showToast(final String message) {
-        Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+        mainHandler.post(() -> Toast.makeText(context, message, Toast.LENGTH_SHORT).show());
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.example.easysale.data;
+
+import android.content.Context;
+
+import com.example.easysale.model.IdSequence;
+
+// Hands out ids for users created on this device.
+// Ids are reserved from the id_sequences table in blocks and then given out from memory, so creates
+// never race on MAX(id) and an id is never handed out twice, not even one of a deleted user whose
+// DELETE may still be waiting in the outbox. Ids that a sync has meanwhile filled with server users
+// are skipped.
+public class IdAllocator {
+    static final String USER_IDS = "users";
+    private static final int BLOCK_SIZE = 32;
+
+    private static volatile IdAllocator INSTANCE;
+
+    private final UserDatabase database;
+    private final UserDao userDao;
+    private final IdSequenceDao sequenceDao;
+    private final int blockSize;
+    // Current block is [next, limit), guarded by this
+    private long next = 0;
+    private long limit = 0;
+
+    public static IdAllocator getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (IdAllocator.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new IdAllocator(UserDatabase.getDatabase(context), BLOCK_SIZE);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    IdAllocator(UserDatabase database, int blockSize) {
+        this.database = database;
+        this.userDao = database.userDao();
+        this.sequenceDao = database.idSequenceDao();
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    // Must be called inside the transaction that inserts the user. That way the database lock is always
+    // taken before this object's, and callers on other threads can't deadlock against a block reservation.
+    public synchronized int nextUserId() {
+        if (!database.inTransaction()) {
+            throw new IllegalStateException("nextUserId must run inside a transaction");
+        }
+        while (true) {
+            if (next >= limit) {
+                reserveBlock();
+            }
+            int id = (int) next++;
+            if (!userDao.userExists(id)) {
+                return id;
+            }
+        }
+    }
+
+    private void reserveBlock() {
+        IdSequence sequence = sequenceDao.get(USER_IDS);
+        if (sequence == null) {
+            sequence = new IdSequence();
+            sequence.setName(USER_IDS);
+        }
+        // Past every stored user, and past the last block even if the transaction that reserved it rolled back
+        long start = Math.max(Math.max(sequence.getNextValue(), userDao.getMaxUserId() + 1L), limit);
+        if (start + blockSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("User ids exhausted");
+        }
+        sequence.setNextValue(start + blockSize);
+        sequenceDao.upsert(sequence);
+        next = start;
+        limit = start + blockSize;
+    }
+}
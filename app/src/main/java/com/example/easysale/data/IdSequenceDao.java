@@ -0,0 +1,18 @@
+package com.example.easysale.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.easysale.model.IdSequence;
+
+@Dao
+public interface IdSequenceDao {
+    // Null until the first block of the sequence is reserved
+    @Query("SELECT * FROM id_sequences WHERE name = :name")
+    IdSequence get(String name);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(IdSequence sequence);
+}
@@ -0,0 +1,40 @@
+package com.example.easysale.data;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import com.example.easysale.model.OutboxEntry;
+
+import java.util.List;
+
+@Dao
+public interface OutboxDao {
+    @Query("SELECT * FROM outbox WHERE userId = :userId")
+    OutboxEntry getByUserId(int userId);
+
+    // Oldest first, entries still backing off are left out
+    @Query("SELECT * FROM outbox WHERE nextAttemptAt <= :now ORDER BY id LIMIT :limit")
+    List<OutboxEntry> getDueEntries(long now, int limit);
+
+    // Null when the outbox is empty
+    @Query("SELECT MIN(nextAttemptAt) FROM outbox")
+    Long getNextAttemptAt();
+
+    @Query("SELECT userId FROM outbox")
+    List<Integer> getPendingUserIds();
+
+    @Query("SELECT COUNT(*) FROM outbox")
+    int countEntries();
+
+    @Insert
+    void insert(OutboxEntry entry);
+
+    @Update
+    void update(OutboxEntry entry);
+
+    @Delete
+    void delete(OutboxEntry entry);
+}
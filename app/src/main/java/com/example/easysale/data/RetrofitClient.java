@@ -1,19 +1,96 @@
 package com.example.easysale.data;
 
+import android.content.Context;
+
+import com.example.easysale.model.ModelTypeAdapterFactory;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public class RetrofitClient {
     // Usually APIs and Endpoints are stored as environment variables but not in this case
     private static final String BASE_URL = "https://reqres.in/api/";
-    private static Retrofit retrofit = null;
+    private static final String HTTP_CACHE_DIR = "http_cache";
+    private static final long HTTP_CACHE_SIZE = 10L * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 16;
+    // Must stay above the number of sync pages in flight, every request goes to the same host
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long READ_TIMEOUT_SECONDS = 20;
+    private static final long WRITE_TIMEOUT_SECONDS = 20;
+    // Model classes are (de)serialized by hand-written adapters instead of reflection
+    static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+    private static volatile Retrofit retrofit = null;
 
-    public static Retrofit getClient(){
-        if(retrofit == null){
-            retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .addConverterFactory(GsonConverterFactory.create()).build();
+    public static Retrofit getClient(Context context) {
+        if (retrofit == null) {
+            synchronized (RetrofitClient.class) {
+                if (retrofit == null) {
+                    File cacheDir = new File(context.getApplicationContext().getCacheDir(), HTTP_CACHE_DIR);
+                    retrofit = buildRetrofit(BASE_URL, buildHttpClient(cacheDir));
+                }
+            }
         }
         return retrofit;
     }
-}
\ No newline at end of file
+
+    static Retrofit buildRetrofit(String baseUrl, OkHttpClient httpClient) {
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(httpClient)
+                .addConverterFactory(GsonConverterFactory.create(GSON)).build();
+    }
+
+    // Shared client: bounded disk cache, explicit pool/dispatcher limits and timeouts.
+    // Cached GET responses are always revalidated, so an unchanged page costs a 304 instead of a full body.
+    static OkHttpClient buildHttpClient(File cacheDir) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        return new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir, HTTP_CACHE_SIZE))
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addNetworkInterceptor(new RevalidateInterceptor())
+                .build();
+    }
+
+    // A max-age (or heuristic freshness from Last-Modified) would let OkHttp serve a page from the cache
+    // without asking the server. Marking it no-cache keeps it stored but forces an If-None-Match /
+    // If-Modified-Since round trip every time, so a sync never misses server changes.
+    // A response the server marked no-store is left alone and never cached.
+    static class RevalidateInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            boolean hasValidator = response.header("ETag") != null || response.header("Last-Modified") != null;
+            if ("GET".equals(chain.request().method()) && hasValidator && !response.cacheControl().noStore()) {
+                return response.newBuilder()
+                        .header("Cache-Control", "no-cache")
+                        .removeHeader("Pragma")
+                        .build();
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.easysale.data;
+
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Tells observers which users a write touched. Room's InvalidationTracker only says that the users table
+// changed; knowing the rows lets the list patch its cached search results instead of searching again.
+// Writers notify inside their transaction, so the ids are known by the time Room reports the commit.
+// Observers only note the ids and read the rows once the invalidation arrives.
+public class UserChangeNotifier {
+
+    public interface Observer {
+        // Called on the writer's thread inside its transaction, keep it short and don't read the rows
+        void onUsersChanged(Collection<Integer> userIds);
+        // Too many rows changed to name them (e.g. the table was cleared)
+        void onAllUsersChanged();
+    }
+
+    private static volatile UserChangeNotifier INSTANCE;
+
+    private final CopyOnWriteArrayList<Observer> observers = new CopyOnWriteArrayList<>();
+
+    public static UserChangeNotifier getInstance() {
+        if (INSTANCE == null) {
+            synchronized (UserChangeNotifier.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new UserChangeNotifier();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    UserChangeNotifier() {
+    }
+
+    public void addObserver(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    // Ids of users inserted, updated or deleted by the write in progress
+    public void notifyChanged(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) return;
+        for (Observer observer : observers) {
+            observer.onUsersChanged(userIds);
+        }
+    }
+
+    public void notifyAllChanged() {
+        for (Observer observer : observers) {
+            observer.onAllUsersChanged();
+        }
+    }
+}
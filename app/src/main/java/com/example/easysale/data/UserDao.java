@@ -3,9 +3,9 @@ package com.example.easysale.data;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
-import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
 import com.example.easysale.model.User;
 
@@ -13,27 +13,97 @@ import java.util.List;
 
 @Dao
 public interface UserDao {
-    @Query("SELECT * FROM users")
+    @Query("SELECT * FROM users ORDER BY id")
     List<User> getAllUsers();
 
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertAll(List<User> users);
+    // Keyset page reads, newest users first
+    @Query("SELECT * FROM users WHERE id < :lastId ORDER BY id DESC LIMIT :limit")
+    List<User> getUsersBefore(int lastId, int limit);
 
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    @Query("SELECT * FROM users WHERE id > :firstId ORDER BY id ASC LIMIT :limit")
+    List<User> getUsersAfter(int firstId, int limit);
+
+    // Fallback for jumping straight to a page that has no loaded neighbour
+    @Query("SELECT * FROM users ORDER BY id DESC LIMIT :limit OFFSET :offset")
+    List<User> getUsersPage(int limit, int offset);
+
+    @Query("SELECT COUNT(*) FROM users")
+    int countUsers();
+
+    // At most SQLite's bound variable limit (999) ids per call
+    @Query("SELECT * FROM users WHERE id IN (:userIds)")
+    List<User> getUsersByIds(List<Integer> userIds);
+
+    @Query("SELECT * FROM users WHERE id = :userId")
+    User getUserById(int userId);
+
+    // Full-text search, query uses FTS syntax such as "jo* sm*" (see UserDataHandler.toFtsQuery)
+    @Query("SELECT users.* FROM users JOIN users_fts ON users.id = users_fts.rowid " +
+            "WHERE users_fts MATCH :query ORDER BY users.id DESC LIMIT :limit OFFSET :offset")
+    List<User> search(String query, int limit, int offset);
+
+    @Query("SELECT users.* FROM users JOIN users_fts ON users.id = users_fts.rowid " +
+            "WHERE users_fts MATCH :query AND users.id < :lastId ORDER BY users.id DESC LIMIT :limit")
+    List<User> searchBefore(String query, int lastId, int limit);
+
+    @Query("SELECT users.* FROM users JOIN users_fts ON users.id = users_fts.rowid " +
+            "WHERE users_fts MATCH :query AND users.id > :firstId ORDER BY users.id ASC LIMIT :limit")
+    List<User> searchAfter(String query, int firstId, int limit);
+
+    @Query("SELECT COUNT(*) FROM users_fts WHERE users_fts MATCH :query")
+    int countSearchResults(String query);
+
+    // Inserts new ids and updates existing rows in place. Not INSERT OR REPLACE: its implicit delete
+    // doesn't fire the users_fts delete trigger, and the index would keep the row's old tokens.
+    // A row whose email another row holds still fails, callers free the email first (see releaseEmail).
+    @Upsert
+    void upsertAll(List<User> users);
+
+    // Fails with SQLiteConstraintException if the email is taken
+    @Insert
     void insert(User user);
 
     @Update
     void update(User user);
 
+    @Update
+    void updateAll(List<User> users);
+
     @Delete
     void delete(User user);
 
     @Query("DELETE FROM users")
     void deleteAll();
 
+    @Query("DELETE FROM users WHERE id IN (:userIds)")
+    void deleteByIds(List<Integer> userIds);
+
+    @Query("SELECT id, syncHash FROM users")
+    List<UserSyncHash> getSyncHashes();
+
+    // Makes the next delta sync rewrite the row from the server's copy
+    @Query("UPDATE users SET syncHash = 0 WHERE id = :userId")
+    void clearSyncHash(int userId);
+
     @Query("SELECT MAX(id) FROM users")
     int getMaxUserId();
 
-    @Query("SELECT COUNT(*) FROM users WHERE email = :email AND id != :userId")
+    @Query("SELECT EXISTS(SELECT 1 FROM users WHERE id = :userId)")
+    boolean userExists(int userId);
+
+    // Explicit collation so both fresh and migrated databases answer from index_users_email
+    @Query("SELECT COUNT(*) FROM users WHERE email = :email COLLATE NOCASE AND id != :userId")
     int countUsersWithEmail(String email, int userId);
+
+    // Null when no other user holds the email
+    @Query("SELECT id FROM users WHERE email = :email COLLATE NOCASE AND id != :userId LIMIT 1")
+    Integer findUserIdWithEmail(String email, int userId);
+
+    // Keeps the row but frees its email; the search key is rebuilt lazily by User.getSearchKey()
+    @Query("UPDATE users SET email = NULL, searchKey = NULL WHERE id = :userId")
+    void releaseEmail(int userId);
+
+    // Covered by index_users_email, used to load EmailFilter
+    @Query("SELECT email FROM users")
+    List<String> getAllEmails();
 }
\ No newline at end of file
@@ -1,29 +1,143 @@
 package com.example.easysale.data;
 
 import android.content.Context;
+import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.example.easysale.model.IdSequence;
+import com.example.easysale.model.OutboxEntry;
 import com.example.easysale.model.User;
+import com.example.easysale.model.UserFts;
 
-@Database(entities = {User.class}, version = 3)
+import java.io.IOException;
+import java.util.Arrays;
+
+@Database(entities = {User.class, UserFts.class, OutboxEntry.class, IdSequence.class}, version = 9, exportSchema = true)
 public abstract class UserDatabase extends RoomDatabase {
     public abstract UserDao userDao();
 
+    public abstract OutboxDao outboxDao();
+
+    public abstract IdSequenceDao idSequenceDao();
+
+    private static final String TAG = "UserDatabase";
+    // Optional pre-built database bundled with the app, copied on first launch instead of an empty one.
+    // Any schema version from 3 up works, Room runs the migrations below after copying it.
+    static final String PREPACKAGED_DIR = "database";
+    static final String PREPACKAGED_FILE = "user_database.db";
+
     private static volatile UserDatabase INSTANCE;
 
+    // v4: per-row sync hash used by delta sync
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE users ADD COLUMN syncHash INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    // v5: FTS index over names and email, kept in sync by the same triggers Room generates for new installs
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `users_fts` USING FTS4("
+                    + "`email` TEXT, `firstName` TEXT, `lastName` TEXT, tokenize=unicode61, content=`users`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_users_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `users` BEGIN DELETE FROM `users_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_users_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `users` BEGIN DELETE FROM `users_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_users_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `users` BEGIN INSERT INTO `users_fts`(`docid`, `email`, `firstName`, `lastName`) "
+                    + "VALUES (NEW.`rowid`, NEW.`email`, NEW.`firstName`, NEW.`lastName`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_users_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `users` BEGIN INSERT INTO `users_fts`(`docid`, `email`, `firstName`, `lastName`) "
+                    + "VALUES (NEW.`rowid`, NEW.`email`, NEW.`firstName`, NEW.`lastName`); END");
+            database.execSQL("INSERT INTO `users_fts`(`users_fts`) VALUES('rebuild')");
+        }
+    };
+
+    // v6: cached search key, filled lazily by User.getSearchKey() for existing rows
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE users ADD COLUMN searchKey TEXT");
+        }
+    };
+
+    // v7: outbox of local changes waiting to be sent to the server
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `outbox` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, `operation` TEXT NOT NULL, `version` INTEGER NOT NULL, "
+                    + "`attempts` INTEGER NOT NULL, `nextAttemptAt` INTEGER NOT NULL)");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_outbox_userId` ON `outbox` (`userId`)");
+        }
+    };
+
+    // v8: case-insensitive unique index on email. Existing duplicates are resolved first: one row per email
+    // keeps it, preferring a row with a change in the outbox and then the oldest, and the others lose only
+    // their email (their search key is rebuilt lazily). No row is deleted, so no pending change is lost.
+    // The column keeps its BINARY collation on migrated databases (changing it would mean rebuilding users
+    // and its FTS triggers), so the collation is set on the index instead.
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Temporary index so finding each email's keeper doesn't scan the table per row
+            database.execSQL("CREATE INDEX IF NOT EXISTS `tmp_users_email` ON `users` (`email` COLLATE NOCASE)");
+            database.execSQL("UPDATE `users` SET `email` = NULL, `searchKey` = NULL WHERE `email` IS NOT NULL AND `id` != "
+                    + "(SELECT `keeper`.`id` FROM `users` AS `keeper` WHERE `keeper`.`email` = `users`.`email` COLLATE NOCASE "
+                    + "ORDER BY EXISTS(SELECT 1 FROM `outbox` WHERE `outbox`.`userId` = `keeper`.`id`) DESC, `keeper`.`id` "
+                    + "LIMIT 1)");
+            database.execSQL("DROP INDEX IF EXISTS `tmp_users_email`");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_users_email` ON `users` (`email` COLLATE NOCASE)");
+        }
+    };
+
+    // v9: block-reserved id sequences for users created locally
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `id_sequences` (`name` TEXT NOT NULL, "
+                    + "`nextValue` INTEGER NOT NULL, PRIMARY KEY(`name`))");
+        }
+    };
+
+    static final Migration[] ALL_MIGRATIONS = {
+            MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9
+    };
+
     public static UserDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
             synchronized (UserDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
-                                    UserDatabase.class, "user_database")
-                            .build();
+                    Context appContext = context.getApplicationContext();
+                    RoomDatabase.Builder<UserDatabase> builder = Room.databaseBuilder(appContext, UserDatabase.class, "user_database")
+                            .addMigrations(ALL_MIGRATIONS);
+                    if (hasPrepackagedDatabase(appContext)) {
+                        // Only used when no database exists yet
+                        builder.createFromAsset(PREPACKAGED_DIR + "/" + PREPACKAGED_FILE);
+                    }
+                    INSTANCE = builder.build();
                 }
             }
         }
         return INSTANCE;
     }
+
+    private static boolean hasPrepackagedDatabase(Context context) {
+        try {
+            String[] files = context.getAssets().list(PREPACKAGED_DIR);
+            return files != null && Arrays.asList(files).contains(PREPACKAGED_FILE);
+        } catch (IOException e) {
+            Log.w(TAG, "hasPrepackagedDatabase: Unable to list assets", e);
+            return false;
+        }
+    }
 }
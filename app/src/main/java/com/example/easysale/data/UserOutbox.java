@@ -0,0 +1,429 @@
+package com.example.easysale.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.easysale.model.OutboxEntry;
+import com.example.easysale.model.User;
+import com.example.easysale.utils.AppExecutors;
+import com.example.easysale.utils.PriorityExecutor.Priority;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import retrofit2.Response;
+
+// Write-behind queue for user mutations.
+// A create/update/delete is written to Room together with an outbox entry in one transaction, so the
+// UI sees it at local-write time. The outbox is then drained to the API in the background: oldest entries
+// first, in batches, with exponential backoff while the server can't be reached. Repeated changes to the
+// same user are coalesced into one entry and always send the latest row.
+// Within a batch up to MAX_IN_FLIGHT requests run at once, started at most MAX_SENDS_PER_SECOND apart,
+// so a bulk delete of many users doesn't go out one round trip at a time nor flood the server.
+// Requests run on the network pool and report back; no thread waits on them or on the rate limit.
+public class UserOutbox {
+    private static final String TAG = "UserOutbox";
+    private static final int DRAIN_BATCH_SIZE = 20;
+    private static final long BASE_BACKOFF_MS = 2_000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    static final int MAX_IN_FLIGHT = 3;
+    private static final int MAX_SENDS_PER_SECOND = 10;
+
+    private static volatile UserOutbox INSTANCE;
+
+    interface Clock {
+        long now();
+    }
+
+    public interface LocalWrite {
+        // Writes the change to Room and returns the id of the user it touched
+        int apply();
+    }
+
+    public interface BatchWrite {
+        // Writes the changes to Room and returns the ids of the users they touched
+        List<Integer> apply();
+    }
+
+    private enum SendResult { SENT, SKIPPED, FAILED, OFFLINE }
+
+    private interface OnDrainedListener {
+        void onDrained(int sent);
+    }
+
+    private final ApiService apiService;
+    private final UserDatabase database;
+    private final UserDao userDao;
+    private final OutboxDao outboxDao;
+    private final AcknowledgedChanges acknowledged;
+    private final Clock clock;
+    // Serial, starts the drains and schedules the next one
+    private final Executor executor;
+    // Runs the requests of a batch concurrently
+    private final Executor sendExecutor;
+    private final long minSendIntervalNanos;
+    // Guards the outbox entries and inFlightUserIds; always taken before a database transaction
+    private final Object lock = new Object();
+    private final Set<Integer> inFlightUserIds = new HashSet<>();
+    private final AtomicBoolean drainQueued = new AtomicBoolean(false);
+    // Drains never overlap; one requested meanwhile is picked up by scheduleNextDrain when it ends
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    // Only touched on the outbox lane
+    private ScheduledFuture<?> scheduledDrain;
+    // Only touched by the running drain
+    private long nextSendAt;
+    // Written by the sends under the lock, read on the outbox lane
+    private volatile long offlineUntil = 0;
+
+    public static UserOutbox getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (UserOutbox.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new UserOutbox(RetrofitClient.getClient(context).create(ApiService.class),
+                            UserDatabase.getDatabase(context), AcknowledgedChanges.getInstance(context),
+                            System::currentTimeMillis,
+                            AppExecutors.getInstance().newSerialLane("outbox"),
+                            command -> AppExecutors.getInstance().network().execute("sendChange", Priority.NORMAL, command),
+                            TimeUnit.SECONDS.toNanos(1) / MAX_SENDS_PER_SECOND);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // Sends one request at a time, without a rate limit
+    UserOutbox(ApiService apiService, UserDatabase database, AcknowledgedChanges acknowledged, Clock clock,
+               Executor executor) {
+        this(apiService, database, acknowledged, clock, executor, Runnable::run, 0);
+    }
+
+    UserOutbox(ApiService apiService, UserDatabase database, AcknowledgedChanges acknowledged, Clock clock,
+               Executor executor, Executor sendExecutor, long minSendIntervalNanos) {
+        this.apiService = apiService;
+        this.database = database;
+        this.userDao = database.userDao();
+        this.outboxDao = database.outboxDao();
+        this.acknowledged = acknowledged;
+        this.clock = clock;
+        this.executor = executor;
+        this.sendExecutor = sendExecutor;
+        this.minSendIntervalNanos = minSendIntervalNanos;
+        this.nextSendAt = System.nanoTime();
+    }
+
+    // Runs the local write and queues the operation for the server atomically, then kicks off a drain.
+    // Must be called off the main thread.
+    public int record(String operation, LocalWrite localWrite) {
+        return recordAll(operation, () -> Collections.singletonList(localWrite.apply())).get(0);
+    }
+
+    // Same for a batch: all the writes and their entries commit in one transaction, which Room reports
+    // to its observers as a single change
+    public List<Integer> recordAll(String operation, BatchWrite batchWrite) {
+        List<Integer> userIds;
+        synchronized (lock) {
+            userIds = database.runInTransaction(() -> {
+                List<Integer> ids = batchWrite.apply();
+                for (int id : ids) {
+                    enqueue(id, operation);
+                }
+                UserChangeNotifier.getInstance().notifyChanged(ids);
+                return ids;
+            });
+        }
+        requestDrain();
+        return userIds;
+    }
+
+    public void requestDrain() {
+        if (!drainQueued.compareAndSet(false, true)) return;
+        Runnable drain = () -> {
+            drainQueued.set(false);
+            if (!draining.compareAndSet(false, true)) return;
+            new Drain(sent -> {
+                draining.set(false);
+                try {
+                    executor.execute(this::scheduleNextDrain);
+                } catch (RejectedExecutionException e) {
+                    Log.w(TAG, "requestDrain: Outbox executor is saturated, next drain not scheduled");
+                }
+            }).pump();
+        };
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException e) {
+            drainQueued.set(false);
+            Log.w(TAG, "requestDrain: Outbox executor is saturated");
+        }
+    }
+
+    // Folds the operation into the user's pending entry, if there is one
+    private void enqueue(int userId, String operation) {
+        OutboxEntry entry = outboxDao.getByUserId(userId);
+        if (entry == null) {
+            entry = new OutboxEntry();
+            entry.setUserId(userId);
+            entry.setOperation(operation);
+            entry.setNextAttemptAt(clock.now());
+            outboxDao.insert(entry);
+            return;
+        }
+        String pending = entry.getOperation();
+        if (OutboxEntry.DELETE.equals(operation)) {
+            if (OutboxEntry.CREATE.equals(pending) && entry.getAttempts() == 0 && !inFlightUserIds.contains(userId)) {
+                // The server never saw this user, nothing to send at all
+                outboxDao.delete(entry);
+                return;
+            }
+            entry.setOperation(OutboxEntry.DELETE);
+        } else if (OutboxEntry.DELETE.equals(pending)) {
+            // Id reused before the delete went out: overwrite whatever the server still has under it
+            entry.setOperation(OutboxEntry.UPDATE);
+        }
+        // Otherwise CREATE stays CREATE and UPDATE stays UPDATE, the drain sends the latest row either way
+        entry.setVersion(entry.getVersion() + 1);
+        outboxDao.update(entry);
+    }
+
+    // Runs a drain and waits until its last request was answered; returns the number of changes sent
+    int drainNow() {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger result = new AtomicInteger();
+        new Drain(sent -> {
+            result.set(sent);
+            done.countDown();
+        }).pump();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result.get();
+    }
+
+    // One pass over every due entry, stopping early when the server can't be reached.
+    // The first request goes out alone: if the server is down, that is the only one that fails.
+    // Each answer pumps the next request from whichever thread it arrived on, so nothing ever blocks.
+    private class Drain {
+        private final OnDrainedListener listener;
+        private final ArrayDeque<Integer> due = new ArrayDeque<>();
+        private int inFlight = 0;
+        private int sent = 0;
+        private boolean reachable = false;
+        private boolean offline = false;
+        private boolean finished = false;
+
+        Drain(OnDrainedListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void pump() {
+            while (!offline && inFlight < (reachable ? MAX_IN_FLIGHT : 1)) {
+                // The batch's entries stay due until they are answered, only then query the next one
+                if (due.isEmpty() && (inFlight > 0 || !loadBatch())) break;
+                dispatch(due.poll());
+            }
+            if (inFlight == 0 && !finished && (offline || due.isEmpty())) {
+                finished = true;
+                if (offline) {
+                    Log.d(TAG, "drain: Server unreachable, " + outboxDao.countEntries() + " changes left");
+                } else if (sent > 0) {
+                    Log.d(TAG, "drain: Sent " + sent + " changes");
+                }
+                listener.onDrained(sent);
+            }
+        }
+
+        private boolean loadBatch() {
+            for (OutboxEntry entry : outboxDao.getDueEntries(clock.now(), DRAIN_BATCH_SIZE)) {
+                due.add(entry.getUserId());
+            }
+            return !due.isEmpty();
+        }
+
+        // A request held back by the rate limit is handed to sendExecutor by the scheduler when its turn comes
+        private void dispatch(int userId) {
+            inFlight++;
+            Runnable request = () -> onAnswered(send(userId));
+            long wait = reserveSendSlot();
+            if (wait > 0) {
+                AppExecutors.getInstance().schedule(() -> execute(userId, request), wait, TimeUnit.NANOSECONDS);
+            } else {
+                execute(userId, request);
+            }
+        }
+
+        private void execute(int userId, Runnable request) {
+            try {
+                sendExecutor.execute(request);
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "drain: Network executor saturated, retrying user " + userId + " later");
+                synchronized (lock) {
+                    postpone(userId);
+                }
+                onAnswered(SendResult.FAILED);
+            }
+        }
+
+        private synchronized void onAnswered(SendResult result) {
+            inFlight--;
+            if (result == SendResult.SENT) {
+                sent++;
+            } else if (result == SendResult.OFFLINE) {
+                offline = true;
+            }
+            reachable |= result != SendResult.OFFLINE;
+            pump();
+        }
+
+        // Spaces request starts at least minSendIntervalNanos apart; returns how long this one has to wait
+        private long reserveSendSlot() {
+            if (minSendIntervalNanos == 0) return 0;
+            long now = System.nanoTime();
+            long startAt = Math.max(now, nextSendAt);
+            nextSendAt = startAt + minSendIntervalNanos;
+            return startAt - now;
+        }
+    }
+
+    private SendResult send(int userId) {
+        OutboxEntry entry;
+        User user = null;
+        synchronized (lock) {
+            entry = outboxDao.getByUserId(userId);
+            if (entry == null || entry.getNextAttemptAt() > clock.now()) {
+                return SendResult.SKIPPED;
+            }
+            if (!OutboxEntry.DELETE.equals(entry.getOperation())) {
+                user = userDao.getUserById(userId);
+                if (user == null) {
+                    outboxDao.delete(entry);
+                    return SendResult.SKIPPED;
+                }
+            }
+            inFlightUserIds.add(userId);
+        }
+        int code;
+        try {
+            code = execute(entry.getOperation(), userId, user);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "send: " + entry.getOperation() + " " + userId + " failed", e);
+            synchronized (lock) {
+                inFlightUserIds.remove(userId);
+                offlineUntil = postpone(userId);
+            }
+            return SendResult.OFFLINE;
+        }
+        synchronized (lock) {
+            try {
+                return database.runInTransaction(() -> onResponse(entry, code));
+            } finally {
+                inFlightUserIds.remove(userId);
+            }
+        }
+    }
+
+    private int execute(String operation, int userId, User user) throws IOException {
+        switch (operation) {
+            case OutboxEntry.CREATE:
+                return responseCode(apiService.createUser(user).execute());
+            case OutboxEntry.UPDATE:
+                return responseCode(apiService.updateUser(userId, user).execute());
+            default:
+                return responseCode(apiService.deleteUser(userId).execute());
+        }
+    }
+
+    private static int responseCode(Response<?> response) {
+        if (response.errorBody() != null) {
+            response.errorBody().close();
+        }
+        return response.code();
+    }
+
+    // Runs in a transaction with the lock held. sentEntry is the state the request was built from.
+    private SendResult onResponse(OutboxEntry sentEntry, int code) {
+        int userId = sentEntry.getUserId();
+        String operation = sentEntry.getOperation();
+        OutboxEntry current = outboxDao.getByUserId(userId);
+        boolean changedMeanwhile = current == null || current.getVersion() != sentEntry.getVersion();
+
+        if ((code >= 200 && code < 300) || (code == 404 && OutboxEntry.DELETE.equals(operation))) {
+            // The server may not keep what it acknowledged, delta syncs must not undo it
+            if (OutboxEntry.CREATE.equals(operation)) {
+                acknowledged.recordCreated(userId);
+            } else if (OutboxEntry.DELETE.equals(operation) && !changedMeanwhile) {
+                acknowledged.recordDeleted(userId);
+            }
+            if (!changedMeanwhile) {
+                outboxDao.delete(current);
+            } else if (current != null && OutboxEntry.CREATE.equals(operation)
+                    && OutboxEntry.CREATE.equals(current.getOperation())) {
+                // Edited while the create was in flight, the server has the user now
+                current.setOperation(OutboxEntry.UPDATE);
+                outboxDao.update(current);
+            }
+            return SendResult.SENT;
+        }
+        if (current == null) {
+            return SendResult.SKIPPED;
+        }
+        if (code == 404 && OutboxEntry.UPDATE.equals(current.getOperation())) {
+            // The server lost the user; the local edit wins and creates it again
+            Log.w(TAG, "onResponse: User " + userId + " missing on server, re-creating");
+            current.setOperation(OutboxEntry.CREATE);
+            outboxDao.update(current);
+            return SendResult.SKIPPED;
+        }
+        if (code == 408 || code == 429 || code >= 500) {
+            postpone(userId);
+            return SendResult.FAILED;
+        }
+        if (changedMeanwhile) {
+            // Rejected, but a newer change is already waiting and gets its own try
+            return SendResult.SKIPPED;
+        }
+        // Rejected (409, 422, ...): the server wins. The change is dropped and the row's sync hash is
+        // cleared, so the next delta sync puts the server's copy back.
+        Log.w(TAG, "onResponse: " + operation + " " + userId + " rejected with " + code + ", keeping server state");
+        outboxDao.delete(current);
+        userDao.clearSyncHash(userId);
+        UserChangeNotifier.getInstance().notifyChanged(Collections.singletonList(userId));
+        return SendResult.FAILED;
+    }
+
+    // Returns the time the entry will be retried, or 0 if it no longer exists
+    private long postpone(int userId) {
+        OutboxEntry current = outboxDao.getByUserId(userId);
+        if (current == null) return 0;
+        int attempts = current.getAttempts() + 1;
+        long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 16));
+        current.setAttempts(attempts);
+        current.setNextAttemptAt(clock.now() + backoff);
+        outboxDao.update(current);
+        return current.getNextAttemptAt();
+    }
+
+    // Runs on the outbox lane after a drain; wakes up again when the next entry is due
+    private void scheduleNextDrain() {
+        Long nextAttemptAt = outboxDao.getNextAttemptAt();
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(false);
+            scheduledDrain = null;
+        }
+        if (nextAttemptAt == null) return;
+        long delay = Math.max(0, Math.max(nextAttemptAt, offlineUntil) - clock.now());
+        scheduledDrain = AppExecutors.getInstance().schedule(this::requestDrain, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.easysale.data;
+
+import com.example.easysale.model.User;
+import com.example.easysale.model.UserTypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Decodes a users page ({"page": .., "total_pages": .., "data": [...]}) straight from the response stream.
+// Users are read one at a time through UserTypeAdapter and handed over in batches as soon as a batch is
+// full, so a page is never held in memory as a whole and no reflection is involved.
+public class UserPageReader {
+
+    public interface OnBatchListener {
+        void onBatch(List<User> users);
+    }
+
+    // Everything about a page except its users, which went to the batch listener
+    public static class PageInfo {
+        public int page;
+        public int perPage;
+        public int total;
+        public int totalPages;
+        public int userCount;
+        // False when the response had no "data" array at all
+        public boolean hasData;
+    }
+
+    private UserPageReader() {
+    }
+
+    // Fields may come in any order; unknown ones (e.g. reqres' "support" block) are skipped
+    public static PageInfo read(Reader reader, int batchSize, OnBatchListener listener) throws IOException {
+        PageInfo info = new PageInfo();
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "page":
+                    info.page = jsonReader.nextInt();
+                    break;
+                case "per_page":
+                    info.perPage = jsonReader.nextInt();
+                    break;
+                case "total":
+                    info.total = jsonReader.nextInt();
+                    break;
+                case "total_pages":
+                    info.totalPages = jsonReader.nextInt();
+                    break;
+                case "data":
+                    info.hasData = true;
+                    info.userCount = readUsers(jsonReader, Math.max(1, batchSize), listener);
+                    break;
+                default:
+                    jsonReader.skipValue();
+                    break;
+            }
+        }
+        jsonReader.endObject();
+        return info;
+    }
+
+    private static int readUsers(JsonReader jsonReader, int batchSize, OnBatchListener listener) throws IOException {
+        int count = 0;
+        List<User> batch = new ArrayList<>(batchSize);
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            User user = UserTypeAdapter.INSTANCE.read(jsonReader);
+            if (user == null) continue;
+            batch.add(user);
+            count++;
+            if (batch.size() == batchSize) {
+                listener.onBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        jsonReader.endArray();
+        if (!batch.isEmpty()) {
+            listener.onBatch(batch);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.easysale.data;
+
+import com.example.easysale.model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Serves fixed-size pages of the users table (newest first) straight from SQLite, so the full
+// directory never has to sit on the heap. A page next to an already loaded one is read with a
+// keyset query anchored on that neighbour's boundary id, anything else falls back to LIMIT/OFFSET.
+// Pages aren't kept here, caching the ones worth keeping is up to the caller (see PageCache); only
+// the boundary ids of every page read are remembered, as anchors.
+// With a search query set the same paging runs over the FTS index instead of the whole table.
+public class UserPagingSource {
+    private final UserDao userDao;
+    private final int pageSize;
+    // Boundaries of the pages read since the last invalidate()
+    private final Map<Integer, PageBounds> bounds = new HashMap<>();
+    private int totalCount = -1;
+    // FTS query, null while browsing without a search
+    private String searchQuery = null;
+    // Bumped by invalidate() so loads that started before a mutation don't record stale anchors
+    private int generation = 0;
+
+    private static class PageBounds {
+        final int firstId;
+        final int lastId;
+        final int size;
+
+        PageBounds(List<User> users) {
+            firstId = users.get(0).getId();
+            lastId = users.get(users.size() - 1).getId();
+            size = users.size();
+        }
+    }
+
+    public UserPagingSource(UserDao userDao, int pageSize) {
+        this.userDao = userDao;
+        this.pageSize = pageSize;
+    }
+
+    // Switch between browsing (null) and an FTS search, drops everything known about the previous query
+    public synchronized void setSearchQuery(String ftsQuery) {
+        searchQuery = ftsQuery;
+        invalidate();
+    }
+
+    // Must be called off the main thread
+    public int getTotalCount() {
+        int generationAtStart;
+        String ftsQuery;
+        synchronized (this) {
+            if (totalCount >= 0) {
+                return totalCount;
+            }
+            generationAtStart = generation;
+            ftsQuery = searchQuery;
+        }
+        int count;
+        if (ftsQuery == null) {
+            count = userDao.countUsers();
+        } else {
+            count = ftsQuery.isEmpty() ? 0 : userDao.countSearchResults(ftsQuery);
+        }
+        synchronized (this) {
+            if (generationAtStart == generation) {
+                totalCount = count;
+            }
+        }
+        return count;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (getTotalCount() + pageSize - 1) / pageSize);
+    }
+
+    // Must be called off the main thread
+    public List<User> load(int page) {
+        int generationAtStart;
+        String ftsQuery;
+        synchronized (this) {
+            generationAtStart = generation;
+            ftsQuery = searchQuery;
+        }
+        List<User> loaded = Collections.unmodifiableList(new ArrayList<>(query(ftsQuery, page)));
+        synchronized (this) {
+            if (generationAtStart == generation && !loaded.isEmpty()) {
+                bounds.put(page, new PageBounds(loaded));
+            }
+        }
+        return loaded;
+    }
+
+    // Drop every anchor and the cached count, called after any write to the users table
+    public synchronized void invalidate() {
+        generation++;
+        bounds.clear();
+        totalCount = -1;
+    }
+
+    private List<User> query(String ftsQuery, int page) {
+        if (ftsQuery != null && ftsQuery.isEmpty()) {
+            // Search text without a single searchable word matches nothing
+            return Collections.emptyList();
+        }
+        PageBounds previous;
+        PageBounds next;
+        synchronized (this) {
+            previous = bounds.get(page - 1);
+            next = bounds.get(page + 1);
+        }
+        if (previous != null && previous.size == pageSize) {
+            return ftsQuery == null
+                    ? userDao.getUsersBefore(previous.lastId, pageSize)
+                    : userDao.searchBefore(ftsQuery, previous.lastId, pageSize);
+        }
+        if (next != null) {
+            List<User> ascending = new ArrayList<>(ftsQuery == null
+                    ? userDao.getUsersAfter(next.firstId, pageSize)
+                    : userDao.searchAfter(ftsQuery, next.firstId, pageSize));
+            Collections.reverse(ascending);
+            return ascending;
+        }
+        int offset = (page - 1) * pageSize;
+        return ftsQuery == null
+                ? userDao.getUsersPage(pageSize, offset)
+                : userDao.search(ftsQuery, pageSize, offset);
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.easysale.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import com.example.easysale.data.UserPageReader.PageInfo;
+import com.example.easysale.model.User;
+import com.example.easysale.utils.AppExecutors;
+import com.example.easysale.utils.PriorityExecutor.Priority;
+import com.example.easysale.utils.SerialExecutor;
+
+// Pulls the whole user directory from the API into Room.
+// Page 1 tells us how many pages exist, the rest are then requested concurrently
+// (at most maxInFlight at a time) and every page is streamed into a PageSink as soon as it arrives.
+// A full sync writes each page straight into Room; a delta sync only diffs the page against the
+// stored sync hashes and applies the changed/removed rows in one transaction at the end.
+// Neither brings back a user whose delete the server acknowledged, and a delta sync doesn't delete a user
+// whose create it acknowledged (see AcknowledgedChanges): the server may have answered without keeping it.
+public class UserSyncEngine {
+    private static final String TAG = "UserSyncEngine";
+    // Keeps DELETE ... IN (...) under SQLite's bound variable limit
+    private static final int DELETE_CHUNK_SIZE = 500;
+    // Users decoded from the stream are written to Room in batches of this size
+    private static final int STORE_BATCH_SIZE = 50;
+    private final ApiService apiService;
+    private final UserDatabase database;
+    private final UserDao userDao;
+    private final AcknowledgedChanges acknowledged;
+    private final int pageSize;
+    private final int maxInFlight;
+    // Room writes share one lane app-wide
+    private final SerialExecutor dbExecutor = AppExecutors.getInstance().database();
+
+    public interface OnSyncListener {
+        // changedRows is the number of rows inserted, updated or deleted by this sync
+        void onSyncComplete(int changedRows);
+        void onError(String error);
+    }
+
+    // Receives batches of decoded users on the database lane, in arrival order
+    private interface PageSink {
+        void onPage(List<User> users);
+        int onComplete();
+    }
+
+    public UserSyncEngine(ApiService apiService, UserDatabase database, AcknowledgedChanges acknowledged,
+                          int pageSize, int maxInFlight) {
+        this.apiService = apiService;
+        this.database = database;
+        this.userDao = database.userDao();
+        this.acknowledged = acknowledged;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    // Insert every server row as it arrives, meant for filling an empty table
+    public void sync(OnSyncListener listener) {
+        new SyncSession(new FullSyncSink(), listener).start();
+    }
+
+    // Bring an already populated table in line with the server touching only the rows that differ
+    public void deltaSync(OnSyncListener listener) {
+        new SyncSession(new DeltaSyncSink(), listener).start();
+    }
+
+    private class FullSyncSink implements PageSink {
+        private final Set<Integer> deletedIds = acknowledged.getDeletedIds();
+        private int storedRows = 0;
+
+        @Override
+        public void onPage(List<User> users) {
+            for (Iterator<User> iterator = users.iterator(); iterator.hasNext(); ) {
+                User user = iterator.next();
+                if (deletedIds.contains(user.getId())) {
+                    iterator.remove();
+                } else {
+                    user.setSyncHash(user.computeContentHash());
+                }
+            }
+            if (users.isEmpty()) return;
+            database.runInTransaction(() -> {
+                List<Integer> changedIds = releaseTakenEmails(users, new HashSet<>(database.outboxDao().getPendingUserIds()));
+                userDao.upsertAll(users);
+                for (User user : users) {
+                    changedIds.add(user.getId());
+                }
+                UserChangeNotifier.getInstance().notifyChanged(changedIds);
+            });
+            EmailFilter.getInstance().addAll(users);
+            storedRows += users.size();
+        }
+
+        @Override
+        public int onComplete() {
+            return storedRows;
+        }
+    }
+
+    private class DeltaSyncSink implements PageSink {
+        private Map<Integer, Integer> localHashes;
+        private final Set<Integer> serverIds = new HashSet<>();
+        private final List<User> changedUsers = new ArrayList<>();
+
+        @Override
+        public void onPage(List<User> users) {
+            if (localHashes == null) {
+                localHashes = new HashMap<>();
+                for (UserSyncHash row : userDao.getSyncHashes()) {
+                    localHashes.put(row.id, row.syncHash);
+                }
+            }
+            for (User user : users) {
+                serverIds.add(user.getId());
+                int hash = user.computeContentHash();
+                Integer localHash = localHashes.get(user.getId());
+                if (localHash == null || localHash != hash) {
+                    user.setSyncHash(hash);
+                    changedUsers.add(user);
+                }
+            }
+        }
+
+        @Override
+        public int onComplete() {
+            // No page ever arrived, never treat an empty response as "delete everything"
+            if (localHashes == null) {
+                return 0;
+            }
+            // Users deleted here stay deleted; once the server stops listing one, its tombstone can go
+            Set<Integer> deletedIds = acknowledged.getDeletedIds();
+            Set<Integer> forgottenIds = new HashSet<>(deletedIds);
+            forgottenIds.removeAll(serverIds);
+            acknowledged.forgetDeleted(forgottenIds);
+            for (Iterator<User> iterator = changedUsers.iterator(); iterator.hasNext(); ) {
+                if (deletedIds.contains(iterator.next().getId())) {
+                    iterator.remove();
+                }
+            }
+            // Users created here stay, the server may never list them
+            Set<Integer> createdIds = acknowledged.getCreatedIds();
+            final List<Integer> removedIds = new ArrayList<>();
+            for (Integer id : localHashes.keySet()) {
+                if (!serverIds.contains(id) && !createdIds.contains(id)) {
+                    removedIds.add(id);
+                }
+            }
+            if (changedUsers.isEmpty() && removedIds.isEmpty()) {
+                Log.d(TAG, "deltaSync: Local data already up to date");
+                return 0;
+            }
+            int changedRows = database.runInTransaction(() -> {
+                List<Integer> changedIds = new ArrayList<>();
+                // Users with changes still in the outbox keep their local state until the server has it
+                Set<Integer> pendingIds = new HashSet<>(database.outboxDao().getPendingUserIds());
+                List<User> upserts = new ArrayList<>();
+                for (User user : changedUsers) {
+                    if (!pendingIds.contains(user.getId())) {
+                        upserts.add(user);
+                    }
+                }
+                removedIds.removeAll(pendingIds);
+                if (!upserts.isEmpty()) {
+                    changedIds.addAll(releaseTakenEmails(upserts, pendingIds));
+                    userDao.upsertAll(upserts);
+                }
+                for (int i = 0; i < removedIds.size(); i += DELETE_CHUNK_SIZE) {
+                    userDao.deleteByIds(removedIds.subList(i, Math.min(i + DELETE_CHUNK_SIZE, removedIds.size())));
+                }
+                Log.d(TAG, "deltaSync: Upserted " + upserts.size() + " and deleted " + removedIds.size() + " users");
+                for (User user : upserts) {
+                    changedIds.add(user.getId());
+                }
+                changedIds.addAll(removedIds);
+                UserChangeNotifier.getInstance().notifyChanged(changedIds);
+                return upserts.size() + removedIds.size();
+            });
+            // Rows skipped for pending changes only add false positives
+            EmailFilter.getInstance().addAll(changedUsers);
+            return changedRows;
+        }
+    }
+
+    // The email index is unique, so a server row whose email another local row holds would fail the upsert.
+    // The local holder gives the email up, unless it has a change of its own in the outbox: then the
+    // incoming row is stored without one and keeps a cleared sync hash so a later sync retries it.
+    // No row is dropped either way. Runs inside the caller's transaction; returns the ids of the holders.
+    private List<Integer> releaseTakenEmails(List<User> users, Set<Integer> pendingIds) {
+        List<Integer> releasedIds = new ArrayList<>();
+        Set<String> claimed = new HashSet<>();
+        for (User user : users) {
+            String email = user.getEmail();
+            if (email == null) continue;
+            Integer holderId = userDao.findUserIdWithEmail(email, user.getId());
+            if (!claimed.add(email.toLowerCase(Locale.ROOT)) || (holderId != null && pendingIds.contains(holderId))) {
+                Log.w(TAG, "releaseTakenEmails: Storing user " + user.getId() + " without its taken email");
+                user.setEmail(null);
+                user.setSyncHash(0);
+            } else if (holderId != null) {
+                Log.w(TAG, "releaseTakenEmails: User " + holderId + " gives its email up to user " + user.getId());
+                userDao.releaseEmail(holderId);
+                releasedIds.add(holderId);
+            }
+        }
+        return releasedIds;
+    }
+
+    // State of a single sync run; callbacks of the in-flight pages all report back here
+    private class SyncSession {
+        private final PageSink sink;
+        private final OnSyncListener listener;
+        private final AtomicInteger nextPage = new AtomicInteger(2);
+        private final AtomicInteger remainingPages = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private volatile int totalPages = -1;
+        // What the server actually serves per page, it may cap the requested size
+        private volatile int servedPageSize = pageSize;
+        private final long startTime = System.currentTimeMillis();
+
+        SyncSession(PageSink sink, OnSyncListener listener) {
+            this.sink = sink;
+            this.listener = listener;
+        }
+
+        void start() {
+            requestPage(1);
+        }
+
+        private void requestPage(final int page) {
+            apiService.streamUsers(page, pageSize).enqueue(new Callback<ResponseBody>() {
+                @Override
+                public void onResponse(@NonNull Call<ResponseBody> call, @NonNull Response<ResponseBody> response) {
+                    Log.d(TAG, "requestPage " + page + ": Response code: " + response.code());
+                    ResponseBody body = response.body();
+                    if (!response.isSuccessful() || body == null) {
+                        if (body != null) body.close();
+                        fail("Unable to fetch users. Please try again later.");
+                        return;
+                    }
+                    if (finished.get()) {
+                        body.close();
+                        return;
+                    }
+                    storePage(page, body);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<ResponseBody> call, @NonNull Throwable throwable) {
+                    Log.e(TAG, "requestPage " + page + " failed", throwable);
+                    fail("Network error. Please check your connection and try again.");
+                }
+            });
+        }
+
+        // The body is read and decoded on the network pool, never on the main thread or the database
+        // lane, so pages in flight decode in parallel and other Room writes don't wait on the server.
+        // Only finished batches go to the lane; the page is reported done after its last batch was
+        // queued there, so the completion step queued after the last page still sees every page.
+        private void storePage(int page, ResponseBody body) {
+            try {
+                AppExecutors.getInstance().network().execute("decodePage " + page, Priority.NORMAL, () -> decodePage(page, body));
+            } catch (RejectedExecutionException e) {
+                body.close();
+                fail("Unable to fetch users. Please try again later.");
+            }
+        }
+
+        private void decodePage(int page, ResponseBody body) {
+            PageInfo info;
+            try (ResponseBody pageBody = body) {
+                if (finished.get()) return;
+                info = UserPageReader.read(pageBody.charStream(), STORE_BATCH_SIZE, users -> {
+                    if (!finished.get()) {
+                        dbExecutor.execute("storeBatch " + page, Priority.NORMAL, () -> {
+                            if (!finished.get()) {
+                                sink.onPage(users);
+                            }
+                        });
+                    }
+                });
+            } catch (IOException | IllegalStateException | NumberFormatException e) {
+                Log.e(TAG, "decodePage: Unable to decode page " + page, e);
+                fail("Unable to fetch users. Please try again later.");
+                return;
+            } catch (RejectedExecutionException e) {
+                Log.e(TAG, "decodePage: Database lane saturated on page " + page, e);
+                fail("Unable to fetch users. Please try again later.");
+                return;
+            }
+            if (!info.hasData) {
+                fail("Unable to fetch users. Please try again later.");
+                return;
+            }
+            Log.d(TAG, "decodePage: Decoded " + info.userCount + " users from page " + page);
+            if (page == 1) {
+                onFirstPage(info);
+            } else {
+                onPageDone(page, info.userCount);
+            }
+        }
+
+        private void onFirstPage(PageInfo info) {
+            if (info.perPage > 0) {
+                servedPageSize = info.perPage;
+            }
+            totalPages = resolveTotalPages(info);
+            if (totalPages < 0) {
+                // Server did not report totals, walk the pages one by one
+                Log.d(TAG, "onFirstPage: No totals in response, falling back to sequential sync");
+                onPageDone(1, info.userCount);
+                return;
+            }
+            Log.d(TAG, "onFirstPage: " + totalPages + " pages to sync, " + maxInFlight + " in flight");
+            if (totalPages <= 1) {
+                complete();
+                return;
+            }
+            remainingPages.set(totalPages - 1);
+            int initialRequests = Math.min(maxInFlight, totalPages - 1);
+            for (int i = 0; i < initialRequests; i++) {
+                requestNextPage();
+            }
+        }
+
+        private void onPageDone(int page, int pageUsers) {
+            if (totalPages < 0) {
+                if (pageUsers == servedPageSize) {
+                    requestPage(page + 1);
+                } else {
+                    complete();
+                }
+                return;
+            }
+            if (remainingPages.decrementAndGet() == 0) {
+                complete();
+            } else {
+                requestNextPage();
+            }
+        }
+
+        private void requestNextPage() {
+            int page = nextPage.getAndIncrement();
+            if (page <= totalPages) {
+                requestPage(page);
+            }
+        }
+
+        private int resolveTotalPages(PageInfo info) {
+            if (info.totalPages > 0) {
+                return info.totalPages;
+            }
+            if (info.total > 0) {
+                return (info.total + servedPageSize - 1) / servedPageSize;
+            }
+            return -1;
+        }
+
+        private void complete() {
+            dbExecutor.execute("completeSync", Priority.NORMAL, () -> {
+                if (finished.compareAndSet(false, true)) {
+                    int changedRows = sink.onComplete();
+                    Log.i(TAG, "complete: Sync finished in " + (System.currentTimeMillis() - startTime) + "ms");
+                    listener.onSyncComplete(changedRows);
+                }
+            });
+        }
+
+        private void fail(String errorMsg) {
+            if (finished.compareAndSet(false, true)) {
+                listener.onError(errorMsg);
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.easysale.data;
+
+// Lightweight projection of a users row, enough for delta sync to diff against a server page
+public class UserSyncHash {
+    public int id;
+    public int syncHash;
+}
@@ -16,18 +16,35 @@ import androidx.annotation.NonNull;
 import com.example.easysale.R;
 import com.example.easysale.model.User;
 
+import java.util.List;
+
 public class DeleteDialog extends Dialog {
-    private final User user;
-    private final OnDeleteConfirmedListener listener;
+    private final String message;
+    private final Runnable onConfirmed;
 
     public interface OnDeleteConfirmedListener {
         void onDeleteConfirmed(User user);
     }
 
+    public interface OnUsersDeleteConfirmedListener {
+        void onDeleteConfirmed(List<Integer> userIds);
+    }
+
     public DeleteDialog(@NonNull Context context, User user, OnDeleteConfirmedListener listener) {
+        this(context, "Are you sure you want to delete " + user.getFirstName() + " " + user.getLastName() + "?",
+                () -> listener.onDeleteConfirmed(user));
+    }
+
+    // Bulk delete of the users selected in the list
+    public DeleteDialog(@NonNull Context context, List<Integer> userIds, OnUsersDeleteConfirmedListener listener) {
+        this(context, "Are you sure you want to delete " + userIds.size() + " users?",
+                () -> listener.onDeleteConfirmed(userIds));
+    }
+
+    private DeleteDialog(@NonNull Context context, String message, Runnable onConfirmed) {
         super(context, R.style.CustomDialog);
-        this.user = user;
-        this.listener = listener;
+        this.message = message;
+        this.onConfirmed = onConfirmed;
     }
 
     @Override
@@ -35,11 +52,10 @@ public class DeleteDialog extends Dialog {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.delete_confirmation_dialog);
         TextView messageTextView = findViewById(R.id.message_text_view);
-        messageTextView.setText
-                ("Are you sure you want to delete " + user.getFirstName() + " " + user.getLastName() + "?");
+        messageTextView.setText(message);
         Button yesButton = findViewById(R.id.yes_button);
         yesButton.setOnClickListener(v -> {
-            listener.onDeleteConfirmed(user);
+            onConfirmed.run();
             dismiss();
         });
         Button noButton = findViewById(R.id.no_button);
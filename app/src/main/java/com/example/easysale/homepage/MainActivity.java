@@ -4,16 +4,25 @@ import android.annotation.SuppressLint;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.widget.ImageView;
+import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
 import androidx.appcompat.widget.Toolbar;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
 import com.example.easysale.userpage.EditUserActivity;
 import com.example.easysale.R;
 import com.example.easysale.adapter.UserAdapter;
@@ -21,13 +30,17 @@ import com.example.easysale.databinding.MainActivityBinding;
 import com.example.easysale.model.User;
 import com.example.easysale.utils.ClickDebounce;
 import com.example.easysale.utils.KeyboardUtils;
+import com.example.easysale.viewmodel.PageState;
 import com.example.easysale.viewmodel.UserViewModel;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class MainActivity extends AppCompatActivity implements
         UserAdapter.OnDeleteClickListener, UserAdapter.OnItemClickListener {
     private static final String TAG = "MainActivity";
+    // Rows ahead of the visible ones whose avatars are loaded while scrolling
+    private static final int AVATAR_PRELOAD_ROWS = 6;
     private UserViewModel userViewModel;
     private UserAdapter userAdapter;
     private MainActivityBinding binding;
@@ -37,6 +50,8 @@ public class MainActivity extends AppCompatActivity implements
     private ClickDebounce<Void> fabClickDebounce;
     private ClickDebounce<User> itemClickDebounce;
     private ClickDebounce<User> deleteClickDebounce;
+    // Shown while users are selected for a bulk delete
+    private ActionMode selectionMode;
     private int currentPage = 1;
 
     @Override
@@ -64,13 +79,15 @@ public class MainActivity extends AppCompatActivity implements
         binding.recyclerView.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerView.setAdapter(userAdapter);
         binding.recyclerView.setNestedScrollingEnabled(false);
+        int avatarSizePx = getResources().getDimensionPixelSize(R.dimen.avatar_row_size);
+        RequestManager glide = Glide.with(this);
+        binding.recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(glide,
+                userAdapter.avatarPreloadProvider(glide, avatarSizePx),
+                new FixedPreloadSizeProvider<>(avatarSizePx, avatarSizePx), AVATAR_PRELOAD_ROWS));
     }
 
+    // Created once; positions are resolved against the adapter's current list at touch time
     private void setupGestureHandler() {
-        if (gestureHandler != null) {
-            binding.recyclerView.removeOnItemTouchListener(gestureHandler);
-        }
-
         gestureHandler = new RecyclerGestureHandler(
                 new RecyclerGestureHandler.OnSwipeListener() {
                     @Override
@@ -86,22 +103,85 @@ public class MainActivity extends AppCompatActivity implements
                     }
                 },
                 (view, position) -> {
-                    User user = userAdapter.getUsers().get(position);
+                    User user = getUserAt(position);
+                    if (user == null) return;
                     Log.d(TAG, "onItemClick: Clicked on user: " + user.getFirstName() + " " + user.getLastName());
-                    itemClickDebounce.onClick(user);
+                    if (userAdapter.isSelecting()) {
+                        toggleSelection(user);
+                    } else {
+                        itemClickDebounce.onClick(user);
+                    }
                 },
                 position -> {
-                    User user = userAdapter.getUsers().get(position);
+                    User user = getUserAt(position);
+                    if (user == null) return;
                     Log.d(TAG, "onDeleteClick: Delete clicked for user: " + user.getFirstName() + " " + user.getLastName());
                     deleteClickDebounce.onClick(user);
+                },
+                position -> {
+                    User user = getUserAt(position);
+                    if (user == null) return;
+                    Log.d(TAG, "onItemLongClick: Long pressed user: " + user.getFirstName() + " " + user.getLastName());
+                    toggleSelection(user);
                 }
         );
 
         binding.recyclerView.addOnItemTouchListener(gestureHandler);
     }
 
+    // A long press starts selecting; taps then add or remove users until the action mode is closed
+    private void toggleSelection(User user) {
+        int selected = userAdapter.toggleSelection(user);
+        if (selected == 0) {
+            if (selectionMode != null) {
+                selectionMode.finish();
+            }
+            return;
+        }
+        if (selectionMode == null) {
+            selectionMode = startSupportActionMode(selectionModeCallback);
+        }
+        if (selectionMode != null) {
+            selectionMode.setTitle(selected + " selected");
+        }
+    }
+
+    private final ActionMode.Callback selectionModeCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.selection_menu, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            if (item.getItemId() == R.id.action_delete_selected) {
+                showBulkDeleteConfirmationDialog(userAdapter.getSelectedIds());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            selectionMode = null;
+            userAdapter.clearSelection();
+        }
+    };
+
+    private User getUserAt(int position) {
+        List<User> currentUsers = userAdapter.getUsers();
+        return position >= 0 && position < currentUsers.size() ? currentUsers.get(position) : null;
+    }
+
     private void goToNextPageWithAnimation() {
-        if (currentPage < userViewModel.getTotalPages().getValue()) {
+        PageState state = userViewModel.getPageState().getValue();
+        if (state != null && currentPage < state.getTotalPages()) {
             currentPage++;
             Log.d(TAG, "goToNextPageWithAnimation: Moving to page " + currentPage);
             animatePageTransition(true);
@@ -130,16 +210,13 @@ public class MainActivity extends AppCompatActivity implements
 
     private void setupViewModel() {
         userViewModel = new ViewModelProvider(this).get(UserViewModel.class);
-        userViewModel.getUsers().observe(this, users -> {
-            if (users != null) {
-                Log.d(TAG, "setupViewModel: Received updated user list. Size: " + users.size());
-                userAdapter.setUsers(users);
-                setupGestureHandler(); // Reset gesture handler when user list updates
-            } else {
-                Log.e(TAG, "setupViewModel: Received null user list");
-            }
+        // One emission per change: the page of users and the totals always arrive together
+        userViewModel.getPageState().observe(this, state -> {
+            Log.d(TAG, "setupViewModel: Received page " + state.getCurrentPage() + ". Size: " + state.getUsers().size());
+            currentPage = state.getCurrentPage();
+            userAdapter.setUsers(state.getUsers());
+            updateUserCount(state.getTotalUsers());
         });
-        userViewModel.getTotalUsers().observe(this, this::updateUserCount);
         userViewModel.loadAllUsers();
     }
 
@@ -170,6 +247,22 @@ public class MainActivity extends AppCompatActivity implements
         }
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_refresh) {
+            Log.d(TAG, "onOptionsItemSelected: Refreshing users from server");
+            userViewModel.refreshUsers();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     private void showDeleteConfirmationDialog(User user) {
         DeleteDialog dialog = new DeleteDialog(this, user, user1 -> {
             Log.d(TAG, "showDeleteConfirmationDialog: User confirmed deletion. Deleting user: " + user1.getFirstName() + " " + user1.getLastName());
@@ -178,6 +271,28 @@ public class MainActivity extends AppCompatActivity implements
         dialog.show();
     }
 
+    // The whole selection is deleted in one transaction; the list is refreshed once when it commits
+    private void showBulkDeleteConfirmationDialog(List<Integer> userIds) {
+        DeleteDialog dialog = new DeleteDialog(this, userIds, ids -> {
+            Log.d(TAG, "showBulkDeleteConfirmationDialog: User confirmed deletion of " + ids.size() + " users");
+            if (selectionMode != null) {
+                selectionMode.finish();
+            }
+            userViewModel.deleteUsers(ids, new UserViewModel.OnUsersDeleteListener() {
+                @Override
+                public void onUsersDeleted(int count) {
+                    Log.d(TAG, "showBulkDeleteConfirmationDialog: Deleted " + count + " users");
+                }
+
+                @Override
+                public void onError(String error) {
+                    runOnUiThread(() -> Toast.makeText(MainActivity.this, error, Toast.LENGTH_SHORT).show());
+                }
+            });
+        });
+        dialog.show();
+    }
+
     @Override
     public void onDeleteClick(User user) {
         deleteClickDebounce.onClick(user);
@@ -210,7 +325,8 @@ public class MainActivity extends AppCompatActivity implements
         KeyboardUtils.hideKeyboard(this);
         Intent intent = new Intent(this, EditUserActivity.class);
         intent.putExtra(EditUserActivity.EXTRA_STATE, EditUserActivity.STATE_EDIT);
-        intent.putExtra("USER", user);
+        // Only the id is handed over, the edit screen reads the row from Room
+        intent.putExtra(EditUserActivity.EXTRA_USER_ID, user.getId());
         editUserLauncher.launch(intent);
     }
 
@@ -220,13 +336,9 @@ public class MainActivity extends AppCompatActivity implements
                 Log.d(TAG, "editUserLauncher: result was " + (result.getResultCode() == RESULT_OK ? "successful" : "unsuccessful"));
                 if (result.getResultCode() == RESULT_OK) {
                     Intent data = result.getData();
-                    if (data != null && data.hasExtra("UPDATED_USER")) {
-                        User updatedUser = (User) data.getSerializableExtra("UPDATED_USER");
-                        Log.d(TAG, "editUserLauncher: Received updated user - " + updatedUser.getFirstName() + " " + updatedUser.getLastName());
-                        userViewModel.updateLocalUser(updatedUser);
-                    } else {
-                        Log.d(TAG, "editUserLauncher: No updated user data received. Reloading all users.");
-                        userViewModel.loadAllUsers();
+                    // The saved row already reached the list through Room, only the search is reset
+                    if (data != null && data.hasExtra(EditUserActivity.EXTRA_USER_ID)) {
+                        Log.d(TAG, "editUserLauncher: Updated user - " + data.getIntExtra(EditUserActivity.EXTRA_USER_ID, -1));
                     }
                     searchBarManager.clearSearchBar();
                 } else {
@@ -237,15 +349,8 @@ public class MainActivity extends AppCompatActivity implements
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        searchBarManager.cancelPendingSearch();
+        gestureHandler.release();
         Log.d(TAG, "onDestroy: MainActivity is being destroyed");
     }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-        if (binding.recyclerView != null) {
-            setupGestureHandler();
-        }
-        Log.d(TAG, "onResume: Gesture handler reset");
-    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.easysale.homepage;
 
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import android.util.Log;
@@ -18,17 +19,27 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
     private final OnSwipeListener swipeListener;
     private final OnItemClickListener clickListener;
     private final OnDeleteClickListener deleteClickListener;
+    private final OnItemLongClickListener longClickListener;
     private float startX;
     private float startY;
     private long startTime;
     private boolean isSwiping = false;
     private boolean isWaitingForReset = false;
+    // Row held down, and whether its long press already fired (the release is then not a click)
+    private int pressedPosition = RecyclerView.NO_POSITION;
+    private boolean longPressFired = false;
     private final Handler handler = new Handler(Looper.getMainLooper());
+    // Reused across touches so handling an event allocates nothing
+    private final Runnable resetSwipeRunnable = this::resetSwipeState;
+    private final Runnable longPressRunnable = this::onLongPress;
+    private final int[] viewLocation = new int[2];
 
-    public RecyclerGestureHandler(OnSwipeListener swipeListener, OnItemClickListener clickListener, OnDeleteClickListener deleteClickListener) {
+    public RecyclerGestureHandler(OnSwipeListener swipeListener, OnItemClickListener clickListener,
+                                  OnDeleteClickListener deleteClickListener, OnItemLongClickListener longClickListener) {
         this.swipeListener = swipeListener;
         this.clickListener = clickListener;
         this.deleteClickListener = deleteClickListener;
+        this.longClickListener = longClickListener;
     }
 
     @Override
@@ -37,16 +48,20 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
             case MotionEvent.ACTION_DOWN:
                 startX = e.getX();
                 startY = e.getY();
-                startTime = System.currentTimeMillis();
+                startTime = e.getEventTime();
                 isSwiping = false;
                 isWaitingForReset = false;
-                Log.d(TAG, "ACTION_DOWN: x=" + startX + ", y=" + startY);
+                handler.removeCallbacks(resetSwipeRunnable);
+                startLongPress(rv, e);
                 break;
 
             case MotionEvent.ACTION_MOVE:
                 if (!isSwiping && !isWaitingForReset) {
                     float diffX = e.getX() - startX;
                     float diffY = e.getY() - startY;
+                    if (Math.abs(diffX) >= CLICK_THRESHOLD || Math.abs(diffY) >= CLICK_THRESHOLD) {
+                        cancelLongPress();
+                    }
                     if (Math.abs(diffX) > Math.abs(diffY) && Math.abs(diffX) > SWIPE_THRESHOLD) {
                         isSwiping = true;
                         Log.d(TAG, "Swipe detected, disallowing intercept");
@@ -57,10 +72,15 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
                 break;
 
             case MotionEvent.ACTION_UP:
-                if (!isWaitingForReset) {
+                cancelLongPress();
+                if (!isWaitingForReset && !longPressFired) {
                     handleActionUp(rv, e);
                 }
                 break;
+
+            case MotionEvent.ACTION_CANCEL:
+                cancelLongPress();
+                break;
         }
         return false; // Don't intercept the touch event
     }
@@ -68,12 +88,10 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
     private void handleActionUp(RecyclerView rv, MotionEvent e) {
         float endX = e.getX();
         float endY = e.getY();
-        long endTime = System.currentTimeMillis();
+        long endTime = e.getEventTime();
         float diffX = endX - startX;
         float diffY = endY - startY;
-        float velocity = Math.abs(diffX) / (endTime - startTime) * 1000;
-
-        Log.d(TAG, "ACTION_UP: endX=" + endX + ", endY=" + endY + ", diffX=" + diffX + ", velocity=" + velocity);
+        float velocity = Math.abs(diffX) / Math.max(1, endTime - startTime) * 1000;
 
         if (isSwiping && Math.abs(diffX) > SWIPE_THRESHOLD && velocity > SWIPE_VELOCITY_THRESHOLD) {
             if (diffX > 0) {
@@ -84,7 +102,7 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
                 swipeListener.onSwipeLeft();
             }
             isWaitingForReset = true;
-            handler.postDelayed(this::resetSwipeState, SWIPE_RESET_DELAY);
+            handler.postDelayed(resetSwipeRunnable, SWIPE_RESET_DELAY);
         } else if (!isSwiping && Math.abs(diffX) < CLICK_THRESHOLD && Math.abs(diffY) < CLICK_THRESHOLD) {
             View childView = rv.findChildViewUnder(e.getX(), e.getY());
             if (childView != null) {
@@ -93,7 +111,7 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
 
                 // Check if the click is on the delete button
                 View deleteButton = childView.findViewById(com.example.easysale.R.id.deleteImageView);
-                if (deleteButton != null && isViewClicked(deleteButton, e.getRawX(), e.getRawY())) {
+                if (deleteButton != null && deleteButton.getVisibility() == View.VISIBLE && isViewClicked(deleteButton, e.getRawX(), e.getRawY())) {
                     Log.d(TAG, "Delete click at position " + position);
                     deleteClickListener.onDeleteClick(position);
                 } else {
@@ -103,11 +121,29 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
         }
     }
 
+    private void startLongPress(RecyclerView rv, MotionEvent e) {
+        longPressFired = false;
+        View childView = rv.findChildViewUnder(e.getX(), e.getY());
+        pressedPosition = childView != null ? rv.getChildAdapterPosition(childView) : RecyclerView.NO_POSITION;
+        if (pressedPosition != RecyclerView.NO_POSITION) {
+            handler.postDelayed(longPressRunnable, ViewConfiguration.getLongPressTimeout());
+        }
+    }
+
+    private void cancelLongPress() {
+        handler.removeCallbacks(longPressRunnable);
+    }
+
+    private void onLongPress() {
+        longPressFired = true;
+        Log.d(TAG, "Long press at position " + pressedPosition);
+        longClickListener.onItemLongClick(pressedPosition);
+    }
+
     private boolean isViewClicked(View view, float x, float y) {
-        int[] location = new int[2];
-        view.getLocationOnScreen(location);
-        int viewX = location[0];
-        int viewY = location[1];
+        view.getLocationOnScreen(viewLocation);
+        int viewX = viewLocation[0];
+        int viewY = viewLocation[1];
 
         return (x > viewX && x < (viewX + view.getWidth()) &&
                 y > viewY && y < (viewY + view.getHeight()));
@@ -132,6 +168,12 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
         // Not needed for this implementation
     }
 
+    // Drop a pending swipe reset or long press when the screen goes away
+    public void release() {
+        handler.removeCallbacks(resetSwipeRunnable);
+        handler.removeCallbacks(longPressRunnable);
+    }
+
     public interface OnSwipeListener {
         void onSwipeLeft();
         void onSwipeRight();
@@ -144,4 +186,8 @@ public class RecyclerGestureHandler implements RecyclerView.OnItemTouchListener
     public interface OnDeleteClickListener {
         void onDeleteClick(int position);
     }
+
+    public interface OnItemLongClickListener {
+        void onItemLongClick(int position);
+    }
 }
\ No newline at end of file
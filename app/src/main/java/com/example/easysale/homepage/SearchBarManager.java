@@ -5,17 +5,22 @@ import android.text.TextWatcher;
 import android.view.MotionEvent;
 
 import com.example.easysale.databinding.MainActivityBinding;
+import com.example.easysale.utils.SearchScheduler;
 import com.example.easysale.viewmodel.UserViewModel;
 
 public class SearchBarManager {
+    // Keystrokes closer together than this are coalesced into one search
+    private static final long SEARCH_DEBOUNCE_MS = 300;
     private final MainActivity activity;
     private final MainActivityBinding binding;
     private final UserViewModel userViewModel;
+    private final SearchScheduler searchScheduler;
 
     public SearchBarManager(MainActivity activity, MainActivityBinding binding, UserViewModel userViewModel) {
         this.activity = activity;
         this.binding = binding;
         this.userViewModel = userViewModel;
+        this.searchScheduler = SearchScheduler.wrap(userViewModel::searchUsers, SEARCH_DEBOUNCE_MS);
         setupSearchBar();
     }
 
@@ -33,10 +38,12 @@ public class SearchBarManager {
             @Override
             public void afterTextChanged(Editable s) {
                 updateClearIconVisibility(s);
-                if (s.toString().isEmpty()) {
-                    userViewModel.loadAllUsers();
+                String query = s.toString();
+                if (query.trim().isEmpty()) {
+                    // Going back to the full list shouldn't wait for the debounce window
+                    searchScheduler.submitNow(query);
                 } else {
-                    userViewModel.searchUsers(s.toString());
+                    searchScheduler.submit(query);
                 }
             }
         });
@@ -66,9 +73,13 @@ public class SearchBarManager {
         return false;
     }
 
-    // Clear the search bar and reload all users
+    // Clear the search bar, the text watcher switches the list back to all users
     public void clearSearchBar() {
         binding.searchEditText.setText("");
-        userViewModel.loadAllUsers();
+    }
+
+    // Drop a search that is still waiting for its debounce window
+    public void cancelPendingSearch() {
+        searchScheduler.cancel();
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.example.easysale.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Next unreserved value of a locally allocated id sequence, see IdAllocator
+@Entity(tableName = "id_sequences")
+public class IdSequence {
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "name")
+    private String name = "";
+
+    @ColumnInfo(name = "nextValue")
+    private long nextValue;
+
+    // Name
+    @NonNull
+    public String getName() {
+        return name;
+    }
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+
+    // Next value
+    public long getNextValue() {
+        return nextValue;
+    }
+    public void setNextValue(long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.easysale.model;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+// Hands Gson the hand-written adapters for the model classes, so it never falls back to
+// ReflectiveTypeAdapterFactory for them (no reflection cost on first use, nothing for R8 to break)
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == User.class) {
+            return (TypeAdapter<T>) UserTypeAdapter.INSTANCE;
+        }
+        if (rawType == UserResponse.class) {
+            return (TypeAdapter<T>) UserResponseTypeAdapter.INSTANCE;
+        }
+        return null;
+    }
+}
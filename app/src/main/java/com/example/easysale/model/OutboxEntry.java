@@ -0,0 +1,87 @@
+package com.example.easysale.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// A local change to a user that the server hasn't acknowledged yet.
+// There is at most one entry per user: repeated changes are folded into it and bump its version.
+@Entity(tableName = "outbox", indices = {@Index(value = "userId", unique = true)})
+public class OutboxEntry {
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    // Increasing, so entries are sent in the order users were first changed
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @ColumnInfo(name = "userId")
+    private int userId;
+
+    @NonNull
+    @ColumnInfo(name = "operation")
+    private String operation = UPDATE;
+
+    // Bumped on every change folded into this entry, tells the drain whether it sent the latest state
+    @ColumnInfo(name = "version")
+    private int version;
+
+    @ColumnInfo(name = "attempts")
+    private int attempts;
+
+    // Epoch millis before which the entry is not retried
+    @ColumnInfo(name = "nextAttemptAt")
+    private long nextAttemptAt;
+
+    // ID
+    public long getId() {
+        return id;
+    }
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    // User ID
+    public int getUserId() {
+        return userId;
+    }
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    // Operation
+    @NonNull
+    public String getOperation() {
+        return operation;
+    }
+    public void setOperation(@NonNull String operation) {
+        this.operation = operation;
+    }
+
+    // Version
+    public int getVersion() {
+        return version;
+    }
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    // Attempts
+    public int getAttempts() {
+        return attempts;
+    }
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    // Next attempt
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    public void setNextAttemptAt(long nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+}
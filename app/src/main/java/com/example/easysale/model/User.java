@@ -1,21 +1,24 @@
 package com.example.easysale.model;
 
 import android.util.Log;
-import java.io.Serializable;
+import java.util.Objects;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.ColumnInfo;
 
+import com.example.easysale.utils.SearchText;
 import com.google.gson.annotations.SerializedName;
 
-@Entity(tableName = "users")
-public class User implements Serializable {
+// Emails are unique ignoring case
+@Entity(tableName = "users", indices = {@Index(value = "email", unique = true)})
+public class User {
     private static final String TAG = "User";
 
     @PrimaryKey
     private int id;
 
-    @ColumnInfo(name = "email")
+    @ColumnInfo(name = "email", collate = ColumnInfo.NOCASE)
     private String email;
 
     @SerializedName("first_name")
@@ -29,6 +32,14 @@ public class User implements Serializable {
     @ColumnInfo(name = "avatar")
     private String avatar;
 
+    // Hash of the content last received from the server, used by delta sync to skip unchanged rows
+    @ColumnInfo(name = "syncHash", defaultValue = "0")
+    private int syncHash;
+
+    // Normalized "first last email" used for search matching, computed lazily and reset when one of them changes
+    @ColumnInfo(name = "searchKey")
+    private String searchKey;
+
     // ID
     public int getId() {
         return id;
@@ -42,6 +53,7 @@ public class User implements Serializable {
         return email;
     }
     public void setEmail(String email) {
+        invalidateSearchKey(this.email, email);
         this.email = email;
     }
 
@@ -50,6 +62,7 @@ public class User implements Serializable {
         return firstName;
     }
     public void setFirstName(String firstName) {
+        invalidateSearchKey(this.firstName, firstName);
         this.firstName = firstName;
     }
 
@@ -58,6 +71,7 @@ public class User implements Serializable {
         return lastName;
     }
     public void setLastName(String lastName) {
+        invalidateSearchKey(this.lastName, lastName);
         this.lastName = lastName;
     }
 
@@ -68,4 +82,42 @@ public class User implements Serializable {
     public void setAvatar(String avatar) {
         this.avatar = avatar;
     }
+
+    // Sync hash
+    public int getSyncHash() {
+        return syncHash;
+    }
+    public void setSyncHash(int syncHash) {
+        this.syncHash = syncHash;
+    }
+
+    // Search key
+    public String getSearchKey() {
+        if (searchKey == null) {
+            searchKey = SearchText.normalize(nullToEmpty(firstName) + " " + nullToEmpty(lastName) + " " + nullToEmpty(email));
+        }
+        return searchKey;
+    }
+    public void setSearchKey(String searchKey) {
+        this.searchKey = searchKey;
+    }
+
+    // Any change invalidates the key, including a field set for the first time after the key was
+    // computed. Room filling a fresh object may drop the stored key this way; it is rebuilt from
+    // the same fields on the next read.
+    private void invalidateSearchKey(String oldValue, String newValue) {
+        if (!Objects.equals(oldValue, newValue)) {
+            searchKey = null;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    // Hash of the server-owned fields, never 0 so it can't be mistaken for "not synced yet"
+    public int computeContentHash() {
+        int hash = Objects.hash(email, firstName, lastName, avatar);
+        return hash != 0 ? hash : 1;
+    }
 }
@@ -0,0 +1,42 @@
+package com.example.easysale.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+// Full-text index over the searchable columns of users.
+// Room keeps it in sync with the users table through content triggers; rowid equals User.id.
+@Fts4(contentEntity = User.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "users_fts")
+public class UserFts {
+    @ColumnInfo(name = "email")
+    private String email;
+
+    @ColumnInfo(name = "firstName")
+    private String firstName;
+
+    @ColumnInfo(name = "lastName")
+    private String lastName;
+
+    public String getEmail() {
+        return email;
+    }
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+}
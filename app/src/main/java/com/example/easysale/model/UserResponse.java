@@ -6,9 +6,53 @@ import java.util.List;
 
 public class UserResponse {
 
+    @SerializedName("page")
+    private int page;
+
+    @SerializedName("per_page")
+    private int perPage;
+
+    @SerializedName("total")
+    private int total;
+
+    @SerializedName("total_pages")
+    private int totalPages;
+
     @SerializedName("data")
     private List<User> data;
 
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getPerPage() {
+        return perPage;
+    }
+
+    public void setPerPage(int perPage) {
+        this.perPage = perPage;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public void setTotalPages(int totalPages) {
+        this.totalPages = totalPages;
+    }
+
     public List<User> getData() {
         return data;
     }
@@ -19,6 +63,7 @@ public class UserResponse {
 
     @Override
     public String toString() {
-        return "UserResponse{data=" + (data != null ? data.toString() : "null") + "}";
+        return "UserResponse{page=" + page + ", total_pages=" + totalPages + ", total=" + total +
+                ", data=" + (data != null ? data.toString() : "null") + "}";
     }
-}
\ No newline at end of file
+}
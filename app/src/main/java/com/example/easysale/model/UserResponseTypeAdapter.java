@@ -0,0 +1,81 @@
+package com.example.easysale.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads and writes a users page without reflection, users go through UserTypeAdapter
+public class UserResponseTypeAdapter extends TypeAdapter<UserResponse> {
+    public static final UserResponseTypeAdapter INSTANCE = new UserResponseTypeAdapter();
+
+    @Override
+    public void write(JsonWriter out, UserResponse response) throws IOException {
+        if (response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("page").value(response.getPage());
+        out.name("per_page").value(response.getPerPage());
+        out.name("total").value(response.getTotal());
+        out.name("total_pages").value(response.getTotalPages());
+        if (response.getData() != null) {
+            out.name("data").beginArray();
+            for (User user : response.getData()) {
+                UserTypeAdapter.INSTANCE.write(out, user);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public UserResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        UserResponse response = new UserResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "page":
+                    response.setPage(in.nextInt());
+                    break;
+                case "per_page":
+                    response.setPerPage(in.nextInt());
+                    break;
+                case "total":
+                    response.setTotal(in.nextInt());
+                    break;
+                case "total_pages":
+                    response.setTotalPages(in.nextInt());
+                    break;
+                case "data":
+                    List<User> users = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        users.add(UserTypeAdapter.INSTANCE.read(in));
+                    }
+                    in.endArray();
+                    response.setData(users);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.easysale.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+// Reads and writes User without reflection. Field names match the API ("first_name", "last_name");
+// local-only columns (syncHash, searchKey) never go over the wire.
+public class UserTypeAdapter extends TypeAdapter<User> {
+    public static final UserTypeAdapter INSTANCE = new UserTypeAdapter();
+
+    @Override
+    public void write(JsonWriter out, User user) throws IOException {
+        if (user == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(user.getId());
+        out.name("email").value(user.getEmail());
+        out.name("first_name").value(user.getFirstName());
+        out.name("last_name").value(user.getLastName());
+        out.name("avatar").value(user.getAvatar());
+        out.endObject();
+    }
+
+    // Unknown fields (e.g. "createdAt" on a create response) are skipped, fields may come in any order
+    @Override
+    public User read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        User user = new User();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    user.setId(in.nextInt());
+                    break;
+                case "email":
+                    user.setEmail(in.nextString());
+                    break;
+                case "first_name":
+                    user.setFirstName(in.nextString());
+                    break;
+                case "last_name":
+                    user.setLastName(in.nextString());
+                    break;
+                case "avatar":
+                    user.setAvatar(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return user;
+    }
+}
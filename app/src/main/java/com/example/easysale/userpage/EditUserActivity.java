@@ -17,6 +17,8 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
 import com.bumptech.glide.Glide;
+import com.example.easysale.avatar.AvatarLoader;
+import com.example.easysale.avatar.AvatarStore;
 import com.example.easysale.R;
 import com.example.easysale.databinding.ActivityEditUserBinding;
 import com.example.easysale.model.User;
@@ -29,9 +31,12 @@ public class EditUserActivity extends AppCompatActivity {
     private ActivityEditUserBinding binding;
     private ClickDebounce saveButtonDebounce;
     private UserViewModel userViewModel;
+    private AvatarStore avatarStore;
     private User currentUser;
     private String state;
     public static final String EXTRA_STATE = "EXTRA_STATE";
+    // Id of the user being edited, also returned in the result once the update is saved
+    public static final String EXTRA_USER_ID = "EXTRA_USER_ID";
     public static final String STATE_EDIT = "Edit";
     public static final String STATE_ADD = "Add";
     private static final String DEFAULT_AVATAR = "android.resource://com.example.easysale/drawable/placeholder";
@@ -43,8 +48,7 @@ public class EditUserActivity extends AppCompatActivity {
                 if (result.getResultCode() == RESULT_OK && result.getData() != null) {
                     Uri selectedImageUri = result.getData().getData();
                     if (selectedImageUri != null) {
-                        currentUser.setAvatar(selectedImageUri.toString());
-                        loadAvatarImage(selectedImageUri.toString());
+                        ingestAvatar(selectedImageUri);
                     }
                 }
             }
@@ -56,12 +60,21 @@ public class EditUserActivity extends AppCompatActivity {
         binding = ActivityEditUserBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
+        setupViewModel();
+        avatarStore = new AvatarStore(this);
         Intent intent = getIntent();
         if (intent != null) {
             state = intent.getStringExtra(EXTRA_STATE);
             if (STATE_EDIT.equals(state)) {
-                currentUser = (User) intent.getSerializableExtra("USER");
-                Log.d(TAG, "onCreate: Editing user - " + (currentUser != null ? currentUser.toString() : "null"));
+                int userId = intent.getIntExtra(EXTRA_USER_ID, -1);
+                Log.d(TAG, "onCreate: Editing user - " + userId);
+                // Text restored from a saved state wins over the stored row
+                boolean fillFields = savedInstanceState == null;
+                userViewModel.loadUser(userId, user -> runOnUiThread(() -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    currentUser = user;
+                    loadUserData(fillFields);
+                }));
             } else if (STATE_ADD.equals(state)) {
                 currentUser = new User();
                 currentUser.setAvatar(DEFAULT_AVATAR);
@@ -70,8 +83,9 @@ public class EditUserActivity extends AppCompatActivity {
         }
 
         setupToolbar();
-        setupViewModel();
-        loadUserData();
+        if (!STATE_EDIT.equals(state)) {
+            loadUserData(savedInstanceState == null);
+        }
         setupSaveButton();
         setupBackNavigation();
         setupAvatarClick();
@@ -90,12 +104,14 @@ public class EditUserActivity extends AppCompatActivity {
         userViewModel = new ViewModelProvider(this).get(UserViewModel.class);
     }
 
-    private void loadUserData() {
+    private void loadUserData(boolean fillFields) {
         Log.d(TAG, "loadUserData: State = " + state + ", CurrentUser = " + (currentUser != null ? currentUser.toString() : "null"));
         if (STATE_EDIT.equals(state) && currentUser != null) {
-            binding.editTextFirstName.setText(currentUser.getFirstName());
-            binding.editTextLastName.setText(currentUser.getLastName());
-            binding.editTextEmail.setText(currentUser.getEmail());
+            if (fillFields) {
+                binding.editTextFirstName.setText(currentUser.getFirstName());
+                binding.editTextLastName.setText(currentUser.getLastName());
+                binding.editTextEmail.setText(currentUser.getEmail());
+            }
             loadAvatarImage(currentUser.getAvatar());
             Log.d(TAG, "loadUserData: Loaded user data for editing - " + currentUser.toString());
         } else if (STATE_ADD.equals(state)) {
@@ -111,10 +127,8 @@ public class EditUserActivity extends AppCompatActivity {
     }
 
     private void loadAvatarImage(String avatarUri) {
-        Glide.with(this)
-                .load(avatarUri)
-                .circleCrop()
-                .into(binding.imageViewAvatar);
+        int sizePx = getResources().getDimensionPixelSize(R.dimen.avatar_edit_size);
+        AvatarLoader.request(Glide.with(this), avatarUri, sizePx).into(binding.imageViewAvatar);
     }
 
     private void setupSaveButton() {
@@ -136,6 +150,8 @@ public class EditUserActivity extends AppCompatActivity {
     }
 
     private void handleAvatarClick() {
+        // Still loading the user being edited
+        if (currentUser == null) return;
         if (currentUser.getAvatar().equals(DEFAULT_AVATAR)) {
             openGallery();
         } else {
@@ -168,12 +184,36 @@ public class EditUserActivity extends AppCompatActivity {
         dialog.show();
     }
 
+    // The picked image is copied into app storage as a downscaled avatar before the row references it;
+    // saving waits until the copy is done
+    private void ingestAvatar(Uri selectedImageUri) {
+        binding.buttonSave.setEnabled(false);
+        avatarStore.ingest(selectedImageUri, new AvatarStore.OnIngestListener() {
+            @Override
+            public void onIngested(String avatarUri) {
+                if (isFinishing() || isDestroyed()) return;
+                Log.d(TAG, "ingestAvatar: Stored as " + avatarUri);
+                currentUser.setAvatar(avatarUri);
+                loadAvatarImage(avatarUri);
+                binding.buttonSave.setEnabled(true);
+            }
+
+            @Override
+            public void onError(String error) {
+                if (isFinishing() || isDestroyed()) return;
+                showError(error);
+                binding.buttonSave.setEnabled(true);
+            }
+        });
+    }
+
     private void openGallery() {
         Intent intent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
         pickImageLauncher.launch(intent);
     }
 
     private void saveUser() {
+        if (currentUser == null) return;
         String firstName = EditUserValidations.cleanName(binding.editTextFirstName.getText().toString());
         String lastName = EditUserValidations.cleanName(binding.editTextLastName.getText().toString());
         String email = binding.editTextEmail.getText().toString().trim();
@@ -215,7 +255,7 @@ public class EditUserActivity extends AppCompatActivity {
                     Log.d(TAG, "onUserUpdated: User updated successfully - " + currentUser.toString());
                     Toast.makeText(EditUserActivity.this, "User updated successfully", Toast.LENGTH_SHORT).show();
                     Intent resultIntent = new Intent();
-                    resultIntent.putExtra("UPDATED_USER", currentUser);
+                    resultIntent.putExtra(EXTRA_USER_ID, currentUser.getId());
                     setResult(RESULT_OK, resultIntent);
                     finish();
                 });
@@ -0,0 +1,83 @@
+package com.example.easysale.utils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// App-wide background threads.
+// io: blocking local work (Room, files). compute: CPU-bound work, one thread per core.
+// network: work that blocks on the server (reading streamed bodies, synchronous calls), kept apart
+// so a slow server never holds the io threads every lane runs on.
+// Code that needs ordering runs on a SerialExecutor lane over io instead of its own thread;
+// database() is the one lane all Room writes share, so they never race each other.
+public final class AppExecutors {
+    private static final int IO_THREADS = 4;
+    private static final int IO_QUEUE_CAPACITY = 256;
+    private static final int COMPUTE_QUEUE_CAPACITY = 128;
+    private static final int NETWORK_THREADS = 4;
+    private static final int NETWORK_QUEUE_CAPACITY = 256;
+    private static final int LANE_CAPACITY = 256;
+
+    private static volatile AppExecutors INSTANCE;
+
+    private final PriorityExecutor io;
+    private final PriorityExecutor compute;
+    private final PriorityExecutor network;
+    private final SerialExecutor database;
+    // Only waits out delays; scheduled tasks must just hand work off to another executor
+    private final ScheduledExecutorService scheduler;
+
+    public static AppExecutors getInstance() {
+        if (INSTANCE == null) {
+            synchronized (AppExecutors.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AppExecutors();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private AppExecutors() {
+        int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+        io = new PriorityExecutor("io", IO_THREADS, IO_QUEUE_CAPACITY);
+        compute = new PriorityExecutor("compute", cores, COMPUTE_QUEUE_CAPACITY);
+        network = new PriorityExecutor("network", NETWORK_THREADS, NETWORK_QUEUE_CAPACITY);
+        database = newSerialLane("database");
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public PriorityExecutor io() {
+        return io;
+    }
+
+    public PriorityExecutor compute() {
+        return compute;
+    }
+
+    public PriorityExecutor network() {
+        return network;
+    }
+
+    public SerialExecutor database() {
+        return database;
+    }
+
+    public SerialExecutor newSerialLane(String name) {
+        return new SerialExecutor(name, io, LANE_CAPACITY);
+    }
+
+    // handOff runs on the scheduler thread after the delay and should only post work elsewhere
+    public ScheduledFuture<?> schedule(Runnable handOff, long delay, TimeUnit unit) {
+        return scheduler.schedule(handOff, delay, unit);
+    }
+
+    public String getMetrics() {
+        return io.getMetrics() + "\n" + compute.getMetrics() + "\n" + network.getMetrics();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.easysale.utils;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fixed-size thread pool whose queue is ordered by task priority (FIFO within a priority) and bounded:
+// once queueCapacity tasks are waiting, new ones are rejected instead of piling up.
+// Every task is timed (queue wait and run time) and slow ones are logged by name.
+public class PriorityExecutor implements Executor {
+    private static final String TAG = "PriorityExecutor";
+    private static final long SLOW_TASK_MS = 500;
+
+    public enum Priority { HIGH, NORMAL, LOW }
+
+    private final String name;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong sequence = new AtomicLong();
+    // Metrics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public PriorityExecutor(String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), new NamedThreadFactory(name));
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute("task", Priority.NORMAL, command);
+    }
+
+    public void execute(String taskName, Priority priority, Runnable command) {
+        if (pool.getQueue().size() >= queueCapacity) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException(name + " queue full, rejected " + taskName);
+        }
+        enqueue(taskName, priority, command);
+    }
+
+    public <T> Future<T> submit(String taskName, Priority priority, Callable<T> callable) {
+        FutureTask<T> future = new FutureTask<>(callable);
+        execute(taskName, priority, future);
+        return future;
+    }
+
+    // Serial lanes keep at most one task each in the pool and bound their own backlog,
+    // so their tasks skip the capacity check; a lane must never stall on a rejected hand-off
+    void executeUnbounded(String taskName, Priority priority, Runnable command) {
+        enqueue(taskName, priority, command);
+    }
+
+    private void enqueue(String taskName, Priority priority, Runnable command) {
+        submitted.incrementAndGet();
+        pool.execute(new PrioritizedTask(taskName, priority, sequence.getAndIncrement(), command));
+        int depth = pool.getQueue().size();
+        int max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)) {
+            // Retry until the new maximum sticks
+        }
+    }
+
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public String getMetrics() {
+        long done = completed.get();
+        return String.format(Locale.US,
+                "%s: submitted=%d completed=%d rejected=%d queued=%d maxQueued=%d avgWait=%.2fms avgRun=%.2fms",
+                name, submitted.get(), done, rejected.get(), getQueueDepth(), maxQueueDepth.get(),
+                done > 0 ? totalWaitNanos.get() / 1e6 / done : 0.0,
+                done > 0 ? totalRunNanos.get() / 1e6 / done : 0.0);
+    }
+
+    private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final String taskName;
+        private final Priority priority;
+        private final long order;
+        private final Runnable command;
+        private final long enqueuedAt = System.nanoTime();
+
+        PrioritizedTask(String taskName, Priority priority, long order, Runnable command) {
+            this.taskName = taskName;
+            this.priority = priority;
+            this.order = order;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            try {
+                command.run();
+            } finally {
+                long finishedAt = System.nanoTime();
+                long waitNanos = startedAt - enqueuedAt;
+                long runNanos = finishedAt - startedAt;
+                totalWaitNanos.addAndGet(waitNanos);
+                totalRunNanos.addAndGet(runNanos);
+                completed.incrementAndGet();
+                if (TimeUnit.NANOSECONDS.toMillis(waitNanos + runNanos) >= SLOW_TASK_MS) {
+                    Log.w(TAG, name + ": Slow task " + taskName + " waited "
+                            + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms, ran "
+                            + TimeUnit.NANOSECONDS.toMillis(runNanos) + "ms");
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + count.getAndIncrement());
+            // Below the main thread, so background work never competes with drawing
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.easysale.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+// Coalesces search keystrokes: only the last query typed within the window is dispatched.
+// Must be used from the main thread.
+public class SearchScheduler {
+    private final long debounceWindow;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final OnSearchListener listener;
+    private String pendingQuery;
+    private final Runnable dispatch = this::dispatchPending;
+
+    public interface OnSearchListener {
+        void onSearch(String query);
+    }
+
+    private SearchScheduler(OnSearchListener listener, long debounceWindow) {
+        this.listener = listener;
+        this.debounceWindow = debounceWindow;
+    }
+
+    // Restart the window with the newest query
+    public void submit(String query) {
+        handler.removeCallbacks(dispatch);
+        pendingQuery = query;
+        handler.postDelayed(dispatch, debounceWindow);
+    }
+
+    // Skip the window, e.g. when the field is cleared
+    public void submitNow(String query) {
+        handler.removeCallbacks(dispatch);
+        pendingQuery = query;
+        dispatchPending();
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(dispatch);
+        pendingQuery = null;
+    }
+
+    private void dispatchPending() {
+        if (pendingQuery != null) {
+            String query = pendingQuery;
+            pendingQuery = null;
+            listener.onSearch(query);
+        }
+    }
+
+    // The caller owns the debounce window (SearchBarManager.SEARCH_DEBOUNCE_MS)
+    public static SearchScheduler wrap(OnSearchListener listener, long debounceWindow) {
+        return new SearchScheduler(listener, debounceWindow);
+    }
+}
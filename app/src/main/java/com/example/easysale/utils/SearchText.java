@@ -0,0 +1,28 @@
+package com.example.easysale.utils;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+// Text helpers shared by the search key on User and the in-memory search matching
+public class SearchText {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Lower case without accents, matching what the unicode61 FTS tokenizer indexes
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase();
+    }
+
+    // True if a word of the (already normalized) text starts with token. Allocation free.
+    public static boolean hasWordStartingWith(String normalizedText, String token) {
+        if (normalizedText == null) return false;
+        int lastStart = normalizedText.length() - token.length();
+        for (int i = 0; i <= lastStart; i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(normalizedText.charAt(i - 1));
+            if (wordStart && normalizedText.startsWith(token, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
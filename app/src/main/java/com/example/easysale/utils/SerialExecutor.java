@@ -0,0 +1,99 @@
+package com.example.easysale.utils;
+
+import android.util.Log;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.example.easysale.utils.PriorityExecutor.Priority;
+
+// A lane on top of a shared PriorityExecutor: tasks run one at a time on whichever pool thread is free.
+// Code that relies on ordering or thread confinement gets that guarantee without owning a thread.
+// Waiting tasks run highest priority first and in submission order within a priority, so tasks that
+// must stay in order have to share a priority.
+public class SerialExecutor implements Executor {
+    private static final String TAG = "SerialExecutor";
+
+    private final String name;
+    private final PriorityExecutor pool;
+    private final int capacity;
+    private final PriorityQueue<LaneTask> tasks = new PriorityQueue<>();
+    private long sequence = 0;
+    private boolean running = false;
+    private boolean shutdown = false;
+
+    SerialExecutor(String name, PriorityExecutor pool, int capacity) {
+        this.name = name;
+        this.pool = pool;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute("task", Priority.NORMAL, command);
+    }
+
+    public synchronized void execute(String taskName, Priority priority, Runnable command) {
+        if (shutdown) {
+            Log.d(TAG, name + ": Shut down, dropping " + taskName);
+            return;
+        }
+        if (tasks.size() >= capacity) {
+            throw new RejectedExecutionException(name + " backlog full, rejected " + taskName);
+        }
+        tasks.add(new LaneTask(taskName, priority, sequence++, command));
+        if (!running) {
+            scheduleNext();
+        }
+    }
+
+    public <T> Future<T> submit(String taskName, Priority priority, Callable<T> callable) {
+        FutureTask<T> future = new FutureTask<>(callable);
+        execute(taskName, priority, future);
+        return future;
+    }
+
+    // Pending tasks are dropped and later ones ignored; the one already running finishes
+    public synchronized void shutdown() {
+        shutdown = true;
+        tasks.clear();
+    }
+
+    private synchronized void scheduleNext() {
+        LaneTask next = tasks.poll();
+        running = next != null;
+        if (next != null) {
+            pool.executeUnbounded(name + "/" + next.taskName, next.priority, () -> {
+                try {
+                    next.command.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+        }
+    }
+
+    private static class LaneTask implements Comparable<LaneTask> {
+        final String taskName;
+        final Priority priority;
+        final long order;
+        final Runnable command;
+
+        LaneTask(String taskName, Priority priority, long order, Runnable command) {
+            this.taskName = taskName;
+            this.priority = priority;
+            this.order = order;
+            this.command = command;
+        }
+
+        @Override
+        public int compareTo(LaneTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.easysale.viewmodel;
+
+import com.example.easysale.model.User;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pages that are ready to show, the current one and its warmed neighbours. The list's only page cache,
+// UserPagingSource just reads them.
+// Written only on the view model's executor, but readable from the main thread, so switching to a warmed
+// page can render in the same frame as the swipe. Least recently used pages are evicted first, and
+// everything is dropped when the data or the search changes.
+public class PageCache {
+    private final Map<Integer, List<User>> pages;
+
+    public PageCache(final int maxPages) {
+        this.pages = new LinkedHashMap<Integer, List<User>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<User>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    // Null if the page isn't ready
+    public synchronized List<User> get(int page) {
+        return pages.get(page);
+    }
+
+    // Doesn't count as a use, warming must not keep a page alive
+    public synchronized boolean contains(int page) {
+        return pages.containsKey(page);
+    }
+
+    public synchronized void put(int page, List<User> users) {
+        pages.put(page, users);
+    }
+
+    public synchronized void clear() {
+        pages.clear();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.easysale.viewmodel;
+
+import com.example.easysale.model.User;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+// Everything the list screen shows for the current page, as one immutable snapshot.
+// The users list, page and totals always belong together, so observers never see a page of users
+// paired with the page count of the previous search.
+public final class PageState {
+    private final List<User> users;
+    private final int currentPage;
+    private final int totalPages;
+    private final int totalUsers;
+
+    public PageState(List<User> users, int currentPage, int totalPages, int totalUsers) {
+        this.users = Collections.unmodifiableList(users);
+        this.currentPage = currentPage;
+        this.totalPages = totalPages;
+        this.totalUsers = totalUsers;
+    }
+
+    // Users
+    public List<User> getUsers() {
+        return users;
+    }
+
+    // Current page, 1-based
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    // Total pages
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    // Total users
+    public int getTotalUsers() {
+        return totalUsers;
+    }
+
+    public PageState withPage(int page, List<User> pageUsers) {
+        return new PageState(pageUsers, page, totalPages, totalUsers);
+    }
+
+    // User has no equals, so rows compare by instance: a page re-read from the database is a change,
+    // the same cached page published again is not
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PageState)) return false;
+        PageState other = (PageState) o;
+        return currentPage == other.currentPage && totalPages == other.totalPages
+                && totalUsers == other.totalUsers && users.equals(other.users);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(users, currentPage, totalPages, totalUsers);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.easysale.viewmodel;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.easysale.model.User;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Collects the pieces of a PageState while the view model works on its executor, then publishes them
+// as one snapshot. A reload or search stages the totals and the page and calls publish() once at the end,
+// so observers get a single emission per change, and none when the snapshot equals the one they have.
+// Snapshots from the executor and from publishNow() are numbered in publish order and both reach
+// observers on the main thread, where an older one arriving after a newer one is dropped.
+public class PageStatePublisher {
+    // A snapshot and its place in publish order
+    private static final class Numbered {
+        final PageState state;
+        final long sequence;
+
+        Numbered(PageState state, long sequence) {
+            this.state = state;
+            this.sequence = sequence;
+        }
+    }
+
+    private final int pageSize;
+    // Snapshots posted by the executor, delivered to state on the main thread
+    private final MutableLiveData<Numbered> posted = new MutableLiveData<>();
+    private final MediatorLiveData<PageState> state = new MediatorLiveData<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // Staged values, only touched on the executor thread
+    private List<User> users = Collections.emptyList();
+    private int currentPage = 1;
+    private int totalPages = 1;
+    private int totalUsers = 0;
+    // Main thread only
+    private long deliveredSequence = 0;
+
+    public PageStatePublisher(int pageSize) {
+        this.pageSize = pageSize;
+        state.addSource(posted, this::deliver);
+    }
+
+    public LiveData<PageState> getState() {
+        return state;
+    }
+
+    // Executor thread
+    public void setTotalUsers(int total) {
+        totalUsers = total;
+        totalPages = Math.max(1, (total + pageSize - 1) / pageSize);
+    }
+
+    // Executor thread
+    public void setPage(int page, List<User> pageUsers) {
+        currentPage = page;
+        users = pageUsers;
+    }
+
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    // Executor thread
+    public void publish() {
+        PageState next = new PageState(users, currentPage, totalPages, totalUsers);
+        posted.postValue(new Numbered(next, sequence.incrementAndGet()));
+    }
+
+    // Main thread, for a page that is already in memory: shown in this frame, keeping the last totals.
+    // The executor stages and publishes the same page afterwards, which then emits nothing.
+    public void publishNow(int page, List<User> pageUsers) {
+        PageState last = state.getValue();
+        if (last == null) return;
+        deliver(new Numbered(last.withPage(page, pageUsers), sequence.incrementAndGet()));
+    }
+
+    // Main thread. Compares against what observers actually have, not against what was last posted.
+    private void deliver(Numbered numbered) {
+        if (numbered.sequence < deliveredSequence) return;
+        deliveredSequence = numbered.sequence;
+        if (numbered.state.equals(state.getValue())) return;
+        state.setValue(numbered.state);
+    }
+}
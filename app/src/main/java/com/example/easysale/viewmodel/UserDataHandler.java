@@ -1,83 +1,185 @@
 package com.example.easysale.viewmodel;
 
 import com.example.easysale.model.User;
+import com.example.easysale.utils.SearchText;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
+// Holds the current search and turns what the user typed into an FTS query.
+// Fresh queries are matched in SQLite against the users_fts index. Result sets small enough to keep
+// are cached per query (LRU), so a query that extends a cached one ("jo" -> "joh") is answered by
+// narrowing the cached results in memory instead of going back to the database. Writes patch the
+// cached sets row by row (applyChanges) rather than dropping them.
 public class UserDataHandler {
-    private List<User> allUsers = new ArrayList<>();
-    private List<User> filteredUsers = new ArrayList<>();
-    private String currentSearchQuery = "";
+    // Result sets above this size are paged from the database instead of cached
+    private static final int MAX_CACHED_RESULTS = 500;
+    private static final int MAX_CACHED_QUERIES = 8;
 
-    public void setAllUsers(List<User> users) {
-        allUsers.clear();
-        allUsers.addAll(users);
-        Collections.reverse(allUsers);
-        filteredUsers = new ArrayList<>(allUsers);
-    }
+    private String currentSearchQuery = "";
+    // Results of the current query when served from memory, null when paged from the database
+    private List<User> filteredUsers = null;
+    private final Map<String, List<User>> resultCache =
+            new LinkedHashMap<String, List<User>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<User>> eldest) {
+                    return size() > MAX_CACHED_QUERIES;
+                }
+            };
 
     public void resetSearchQuery() {
         currentSearchQuery = "";
+        filteredUsers = null;
     }
 
     public void setSearchQuery(String query) {
-        currentSearchQuery = query.toLowerCase().trim();
+        currentSearchQuery = SearchText.normalize(query.trim());
+        filteredUsers = null;
     }
 
-    public void performSearch() {
-        if (currentSearchQuery.isEmpty()) {
-            filteredUsers = new ArrayList<>(allUsers);
-        } else {
-            filteredUsers = allUsers.stream()
-                    .filter(user -> userMatchesSearch(user, currentSearchQuery))
-                    .collect(Collectors.toList());
-        }
+    public boolean hasSearchQuery() {
+        return !currentSearchQuery.isEmpty();
     }
 
-    public void updateUser(User updatedUser) {
-        updateUserInList(allUsers, updatedUser);
-        updateUserInList(filteredUsers, updatedUser);
+    // FTS query for the current search, null while not searching
+    public String getFtsQuery() {
+        return hasSearchQuery() ? toFtsQuery(currentSearchQuery) : null;
     }
 
-    private void updateUserInList(List<User> userList, User updatedUser) {
-        for (int i = 0; i < userList.size(); i++) {
-            if (userList.get(i).getId() == updatedUser.getId()) {
-                userList.set(i, updatedUser);
-                break;
+    // Try to answer the current query from the cache, either directly or by narrowing the results of
+    // the longest cached query it extends. Returns false when the database has to be asked.
+    public boolean performSearch() {
+        if (!hasSearchQuery()) return false;
+        List<User> cached = resultCache.get(currentSearchQuery);
+        if (cached != null) {
+            filteredUsers = cached;
+            return true;
+        }
+        String supersetKey = null;
+        for (String key : resultCache.keySet()) {
+            if (currentSearchQuery.startsWith(key) && (supersetKey == null || key.length() > supersetKey.length())) {
+                supersetKey = key;
             }
         }
+        if (supersetKey == null) return false;
+        List<String> tokens = tokenize(currentSearchQuery);
+        List<User> narrowed = new ArrayList<>();
+        for (User user : resultCache.get(supersetKey)) {
+            if (userMatchesSearch(user, tokens)) {
+                narrowed.add(user);
+            }
+        }
+        resultCache.put(currentSearchQuery, narrowed);
+        filteredUsers = narrowed;
+        return true;
     }
 
-    public void removeUser(User user) {
-        allUsers.remove(user);
-        filteredUsers.remove(user);
+    public boolean canCacheResults(int resultCount) {
+        return resultCount <= MAX_CACHED_RESULTS;
     }
 
-    public void addUser(User user) {
-        allUsers.add(0, user);
-        if (currentSearchQuery.isEmpty() || userMatchesSearch(user, currentSearchQuery)) {
-            filteredUsers.add(0, user);
-        }
+    // Complete result set of the current query as read from the FTS index, newest first
+    public void setSearchResults(List<User> results) {
+        filteredUsers = new ArrayList<>(results);
+        resultCache.put(currentSearchQuery, filteredUsers);
     }
 
-    private boolean userMatchesSearch(User user, String lowercaseQuery) {
-        return user.getFirstName().toLowerCase().contains(lowercaseQuery) ||
-                user.getLastName().toLowerCase().contains(lowercaseQuery) ||
-                user.getEmail().toLowerCase().contains(lowercaseQuery);
+    public boolean hasFilteredUsers() {
+        return filteredUsers != null;
     }
 
     public int getFilteredUsersSize() {
-        return filteredUsers.size();
-    }
-
-    public int getAllUsersSize() {
-        return allUsers.size();
+        return filteredUsers != null ? filteredUsers.size() : 0;
     }
 
     public List<User> getFilteredUsersSubList(int start, int end) {
         return new ArrayList<>(filteredUsers.subList(start, end));
     }
-}
\ No newline at end of file
+
+    // Forget every cached result, when too many users changed at once to patch them
+    public void clearCache() {
+        resultCache.clear();
+        filteredUsers = null;
+    }
+
+    // Patch every cached result set for a write: the changed users leave each set and come back in id order
+    // where their current row (deleted users have none) still matches that set's query
+    public void applyChanges(Set<Integer> changedIds, List<User> currentRows) {
+        boolean currentPatched = false;
+        for (Map.Entry<String, List<User>> entry : resultCache.entrySet()) {
+            patch(entry.getValue(), tokenize(entry.getKey()), changedIds, currentRows);
+            currentPatched |= entry.getValue() == filteredUsers;
+        }
+        // The current results are normally one of the cached sets, unless the LRU dropped it meanwhile
+        if (filteredUsers != null && !currentPatched) {
+            patch(filteredUsers, tokenize(currentSearchQuery), changedIds, currentRows);
+        }
+    }
+
+    private void patch(List<User> results, List<String> tokens, Set<Integer> changedIds, List<User> currentRows) {
+        Iterator<User> iterator = results.iterator();
+        while (iterator.hasNext()) {
+            if (changedIds.contains(iterator.next().getId())) {
+                iterator.remove();
+            }
+        }
+        for (User user : currentRows) {
+            if (userMatchesSearch(user, tokens)) {
+                insertInOrder(results, user);
+            }
+        }
+    }
+
+    // Result lists are ordered newest (highest id) first, like the pages
+    private static void insertInOrder(List<User> results, User user) {
+        int index = 0;
+        while (index < results.size() && results.get(index).getId() > user.getId()) {
+            index++;
+        }
+        results.add(index, user);
+    }
+
+    // Same rule as the FTS query: every token has to prefix-match a word of the name or email.
+    // Runs against the precomputed search key, so nothing is allocated per user.
+    private boolean userMatchesSearch(User user, List<String> tokens) {
+        String searchKey = user.getSearchKey();
+        for (String token : tokens) {
+            if (!SearchText.hasWordStartingWith(searchKey, token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Splits on anything that is not a letter or digit, the same way the unicode61 tokenizer does
+    static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        int tokenStart = -1;
+        for (int i = 0; i <= query.length(); i++) {
+            boolean isTokenChar = i < query.length() && Character.isLetterOrDigit(query.charAt(i));
+            if (isTokenChar && tokenStart < 0) {
+                tokenStart = i;
+            } else if (!isTokenChar && tokenStart >= 0) {
+                tokens.add(query.substring(tokenStart, i));
+                tokenStart = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // "Jo Sm" -> "jo* sm*": every typed word has to prefix-match a word of the name or email
+    static String toFtsQuery(String query) {
+        StringBuilder ftsQuery = new StringBuilder();
+        for (String token : tokenize(query)) {
+            if (ftsQuery.length() > 0) {
+                ftsQuery.append(' ');
+            }
+            ftsQuery.append(token).append('*');
+        }
+        return ftsQuery.toString();
+    }
+}
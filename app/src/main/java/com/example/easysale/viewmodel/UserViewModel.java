@@ -3,80 +3,130 @@ package com.example.easysale.viewmodel;
 import android.app.Application;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
 
+import com.example.easysale.avatar.AvatarPreloader;
+import com.example.easysale.data.EmailFilter;
 import com.example.easysale.data.FetchUsers;
+import com.example.easysale.data.UserChangeNotifier;
 import com.example.easysale.data.UserDao;
 import com.example.easysale.data.UserDatabase;
+import com.example.easysale.data.UserPagingSource;
 import com.example.easysale.model.User;
+import com.example.easysale.utils.AppExecutors;
+import com.example.easysale.utils.PriorityExecutor.Priority;
+import com.example.easysale.utils.SerialExecutor;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class UserViewModel extends AndroidViewModel {
     private static final String TAG = "UserViewModel";
     // Change this if you want different amount of users per page
     private static final int USERS_PER_PAGE = 6;
+    // Pages warmed on each side of the current one (rows and avatars), and how many pages stay cached
+    private static final int PREFETCH_DISTANCE = 2;
+    private static final int MAX_CACHED_PAGES = 8;
+    // More changed users than this are not patched into the cached search results, the searches run again
+    private static final int MAX_PATCHED_USERS = 500;
 
     private final FetchUsers repository;
+    private final UserDatabase database;
     private final UserDao userDao;
-    private final ExecutorService executor;
+    // Serial lane on the shared io pool, confines the pagination and search state below
+    private final SerialExecutor executor;
     private final UserDataHandler dataHandler;
+    private final UserPagingSource pagingSource;
+    private final PageCache pageCache = new PageCache(MAX_CACHED_PAGES);
+    private final AvatarPreloader avatarPreloader;
+    // Pagination state; staged on the executor thread and published as one PageState per change
+    private final PageStatePublisher pageState = new PageStatePublisher(USERS_PER_PAGE);
+    // Latest search request; older ones are cancelled or dropped
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    // Latest page the user asked for; loads queued before it no longer publish anything
+    private final AtomicInteger pageRequest = new AtomicInteger();
+    private Future<?> pendingSearch;
+
+    // Room reports every committed write to users, whoever made it; bursts (e.g. a sync writing
+    // page after page) collapse into a single reload of the visible window
+    private final AtomicBoolean windowReloadQueued = new AtomicBoolean(false);
+    private final InvalidationTracker.Observer usersObserver = new InvalidationTracker.Observer("users") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            queueWindowReload();
+        }
+    };
+    // Users the writers reported changed since the last reload, null once there are too many to patch.
+    // Only used to patch the cached search results; a write nobody reported runs the search again.
+    private final Object changesLock = new Object();
+    private Set<Integer> changedUserIds = new HashSet<>();
+    private final UserChangeNotifier.Observer changeObserver = new UserChangeNotifier.Observer() {
+        @Override
+        public void onUsersChanged(Collection<Integer> userIds) {
+            synchronized (changesLock) {
+                if (changedUserIds != null) {
+                    changedUserIds.addAll(userIds);
+                    if (changedUserIds.size() > MAX_PATCHED_USERS) {
+                        changedUserIds = null;
+                    }
+                }
+            }
+        }
 
-    private final MutableLiveData<List<User>> users = new MutableLiveData<>();
-    private final MutableLiveData<Integer> totalPages = new MutableLiveData<>();
-    private final MutableLiveData<Integer> totalUsers = new MutableLiveData<>();
-    private final MutableLiveData<Integer> currentPage = new MutableLiveData<>(1);
-    private final MutableLiveData<Integer> selectedPage = new MutableLiveData<>(1);
-    private final MutableLiveData<Boolean> paginationUpdated = new MutableLiveData<>();
+        @Override
+        public void onAllUsersChanged() {
+            synchronized (changesLock) {
+                changedUserIds = null;
+            }
+        }
+    };
 
     public UserViewModel(Application application) {
+        this(application, UserDatabase.getDatabase(application), AppExecutors.getInstance().newSerialLane(TAG));
+    }
+
+    // Tests pass an in-memory database and a lane they can wait on
+    UserViewModel(Application application, UserDatabase database, SerialExecutor executor) {
         super(application);
         repository = new FetchUsers(application);
-        userDao = UserDatabase.getDatabase(application).userDao();
-        executor = Executors.newSingleThreadExecutor();
+        this.database = database;
+        userDao = database.userDao();
+        this.executor = executor;
         dataHandler = new UserDataHandler();
+        pagingSource = new UserPagingSource(userDao, USERS_PER_PAGE);
+        avatarPreloader = new AvatarPreloader(application);
+        UserChangeNotifier.getInstance().addObserver(changeObserver);
+        executor.execute("observeUsers", Priority.HIGH, () -> database.getInvalidationTracker().addObserver(usersObserver));
     }
 
-    public LiveData<List<User>> getUsers() {
-        return users;
-    }
-
-    public LiveData<Integer> getTotalPages() {
-        return totalPages;
-    }
-
-    public LiveData<Integer> getTotalUsers() {
-        return totalUsers;
-    }
-
-    public LiveData<Integer> getCurrentPage() {
-        return currentPage;
-    }
-
-    public LiveData<Integer> getSelectedPage() {
-        return selectedPage;
-    }
-
-    public LiveData<Boolean> getPaginationUpdated() {
-        return paginationUpdated;
+    public LiveData<PageState> getPageState() {
+        return pageState.getState();
     }
 
     public void loadAllUsers() {
-        dataHandler.resetSearchQuery();
         repository.getAllUsers(new FetchUsers.OnUsersFetchListener() {
             @Override
-            public void onUsersFetched(List<User> fetchedUsers, int total) {
-                Log.i(TAG, "Fetched " + fetchedUsers.size() + " users out of " + total + " total users");
-                dataHandler.setAllUsers(fetchedUsers);
-                totalUsers.postValue(total);
-                updatePagination();
-                loadPage(1);
-                paginationUpdated.postValue(true);
+            public void onUsersFetched(int total) {
+                Log.i(TAG, "Users ready, " + total + " in local database");
+                searchGeneration.incrementAndGet();
+                executor.execute("loadAllUsers", Priority.HIGH, () -> {
+                    pageCache.clear();
+                    dataHandler.resetSearchQuery();
+                    pagingSource.setSearchQuery(null);
+                    updatePagination();
+                    showPage(1);
+                });
             }
 
             @Override
@@ -86,63 +136,182 @@ public class UserViewModel extends AndroidViewModel {
         });
     }
 
-    public void updateLocalUser(User updatedUser) {
-        Log.d(TAG, "Updating local user: " + updatedUser.getFirstName() + " " + updatedUser.getLastName());
-        dataHandler.updateUser(updatedUser);
-        loadPage(currentPage.getValue() != null ? currentPage.getValue() : 1);
-        paginationUpdated.postValue(true);
+    // Delta sync with the server; changed rows reach the list through the users table observer
+    public void refreshUsers() {
+        repository.refreshUsers(new FetchUsers.OnUsersFetchListener() {
+            @Override
+            public void onUsersFetched(int total) {
+                Log.i(TAG, "Refresh changed local data, now " + total + " users");
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error refreshing users: " + error);
+            }
+        });
     }
 
+    // Called from the main thread. A newer search cancels an older one that hasn't started yet,
+    // and an older one that is already running drops its result instead of publishing it.
     public void searchUsers(String query) {
-        dataHandler.setSearchQuery(query);
         Log.d(TAG, "Searching for: " + query);
-        dataHandler.performSearch();
+        int generation = searchGeneration.incrementAndGet();
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+        }
+        pendingSearch = executor.submit("search", Priority.HIGH, () -> {
+            runSearch(query, generation);
+            return null;
+        });
+    }
+
+    // Runs on the executor thread
+    private void runSearch(String query, int generation) {
+        if (generation != searchGeneration.get()) return;
+        pageCache.clear();
+        dataHandler.setSearchQuery(query);
+        if (!dataHandler.performSearch()) {
+            // Not answerable from cached results, ask the FTS index
+            querySearchResults();
+        }
+        if (generation != searchGeneration.get()) {
+            Log.d(TAG, "Dropping stale search result for: " + query);
+            return;
+        }
+        updatePagination();
+        showPage(1);
+    }
+
+    // Runs on the executor thread. Points the paging source at the current query and keeps the
+    // complete result set in memory when it is small enough to cache.
+    private void querySearchResults() {
+        String ftsQuery = dataHandler.getFtsQuery();
+        pagingSource.setSearchQuery(ftsQuery);
+        int count = pagingSource.getTotalCount();
+        if (ftsQuery != null && dataHandler.canCacheResults(count)) {
+            dataHandler.setSearchResults(count > 0 ? userDao.search(ftsQuery, count, 0) : new ArrayList<>());
+        }
+    }
+
+    private void queueWindowReload() {
+        if (!windowReloadQueued.compareAndSet(false, true)) return;
+        try {
+            executor.execute("usersChanged", Priority.HIGH, () -> {
+                windowReloadQueued.set(false);
+                reloadWindow();
+            });
+        } catch (RejectedExecutionException e) {
+            windowReloadQueued.set(false);
+            Log.w(TAG, "queueWindowReload: Executor saturated, skipping reload");
+        }
+    }
+
+    // Runs on the executor thread. Something wrote to the users table (this screen, another one, a sync
+    // or the outbox): re-read the window on screen, and patch only the changed users into the cached
+    // search results. A write too large to patch (e.g. a full sync) or one nobody reported the rows of
+    // (e.g. clearing the table after a failed sync) runs the search again.
+    private void reloadWindow() {
+        Set<Integer> changedIds;
+        synchronized (changesLock) {
+            changedIds = changedUserIds;
+            changedUserIds = new HashSet<>();
+        }
+        pageCache.clear();
+        pagingSource.invalidate();
+        if (changedIds == null || changedIds.isEmpty()) {
+            dataHandler.clearCache();
+            querySearchResults();
+        } else {
+            dataHandler.applyChanges(changedIds, userDao.getUsersByIds(new ArrayList<>(changedIds)));
+        }
         updatePagination();
-        loadPage(1);
-        paginationUpdated.postValue(true);
+        checkAndAdjustPage();
     }
 
+    // Runs on the executor thread. Only stages the totals, showPage publishes them with the page.
     private void updatePagination() {
-        int total = dataHandler.getFilteredUsersSize();
-        totalUsers.postValue(total);
-        int pages = Math.max(1, (total + USERS_PER_PAGE - 1) / USERS_PER_PAGE);
-        totalPages.postValue(pages);
-        Log.d(TAG, "Updated pagination: total users = " + total + ", total pages = " + pages);
+        int total = dataHandler.hasFilteredUsers() ? dataHandler.getFilteredUsersSize() : pagingSource.getTotalCount();
+        pageState.setTotalUsers(total);
+        Log.d(TAG, "Updated pagination: total users = " + total + ", total pages = " + pageState.getTotalPages());
     }
 
+    // Runs on the executor thread; keeps the current page unless it no longer exists
     private void checkAndAdjustPage() {
-        int currentPageValue = currentPage.getValue() != null ? currentPage.getValue() : 1;
-        int totalPagesValue = totalPages.getValue() != null ? totalPages.getValue() : 1;
-        int start = (currentPageValue - 1) * USERS_PER_PAGE;
-
-        if (start >= dataHandler.getFilteredUsersSize() && totalPagesValue > 0) {
-            Log.d(TAG, "Adjusting to last page: " + totalPagesValue);
-            loadPage(totalPagesValue);
-        } else if (dataHandler.getFilteredUsersSize() == 0) {
-            Log.d(TAG, "No filtered users, staying on page 1");
-            loadPage(1);
+        int currentPage = pageState.getCurrentPage();
+        if (currentPage > pageState.getTotalPages()) {
+            Log.d(TAG, "Adjusting to last page: " + pageState.getTotalPages());
         } else {
-            Log.d(TAG, "Reloading current page: " + currentPageValue);
-            loadPage(currentPageValue);
+            Log.d(TAG, "Reloading current page: " + currentPage);
         }
-        paginationUpdated.postValue(true);
+        showPage(currentPage);
     }
 
+    // Called from the main thread. A warmed page is published right away, in the same frame as the swipe
+    // animation; the executor then confirms it (or replaces it, if the data changed meanwhile), unless
+    // the user has swiped on again by then.
     public void loadPage(int page) {
-        Integer totalPagesValue = totalPages.getValue();
-        if (totalPagesValue == null) {
-            totalPagesValue = 1;
+        int request = pageRequest.incrementAndGet();
+        List<User> ready = pageCache.get(page);
+        if (ready != null) {
+            Log.d(TAG, "Page " + page + " served from memory");
+            pageState.publishNow(page, ready);
         }
-        page = Math.max(1, Math.min(page, totalPagesValue));
-        selectedPage.postValue(page);
-        currentPage.postValue(page);
-        int start = (page - 1) * USERS_PER_PAGE;
-        int end = Math.min(start + USERS_PER_PAGE, dataHandler.getFilteredUsersSize());
+        executor.execute("loadPage", Priority.HIGH, () -> {
+            if (request == pageRequest.get()) {
+                showPage(page);
+            }
+        });
+    }
+
+    // Runs on the executor thread. Ends every load, search and reload: the one place the state is published.
+    private void showPage(int page) {
+        page = Math.max(1, Math.min(page, pageState.getTotalPages()));
+        List<User> pageUsers = pageCache.get(page);
+        if (pageUsers == null) {
+            pageUsers = readPage(page);
+            pageCache.put(page, pageUsers);
+        }
+        pageState.setPage(page, pageUsers);
+        pageState.publish();
+        Log.d(TAG, "Published page " + page + " with " + pageUsers.size() + " users");
+        warmNeighbours(page);
+    }
+
+    // Runs on the executor thread
+    private List<User> readPage(int page) {
+        if (dataHandler.hasFilteredUsers()) {
+            int start = Math.min((page - 1) * USERS_PER_PAGE, dataHandler.getFilteredUsersSize());
+            int end = Math.min(start + USERS_PER_PAGE, dataHandler.getFilteredUsersSize());
+            return Collections.unmodifiableList(dataHandler.getFilteredUsersSubList(start, end));
+        }
+        return pagingSource.load(page);
+    }
+
+    // Runs on the executor thread. Every neighbour is warmed by a LOW task of its own, and the lane runs
+    // waiting user requests (HIGH) first, so warming holds one up by a single page read at most.
+    private void warmNeighbours(int page) {
+        for (int distance = 1; distance <= PREFETCH_DISTANCE; distance++) {
+            queueWarmPage(page + distance);
+            queueWarmPage(page - distance);
+        }
+    }
 
-        start = Math.min(start, dataHandler.getFilteredUsersSize());
-        List<User> pageUsers = new ArrayList<>(dataHandler.getFilteredUsersSubList(start, end));
-        users.postValue(pageUsers);
-        Log.d(TAG, "Loaded " + pageUsers.size() + " users for page " + page);
+    private void queueWarmPage(int page) {
+        try {
+            executor.execute("warmPage", Priority.LOW, () -> warmPage(page));
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "queueWarmPage: Executor saturated, skipping page " + page);
+        }
+    }
+
+    // Runs on the executor thread; skips pages the user has moved away from in the meantime
+    private void warmPage(int page) {
+        if (page < 1 || page > pageState.getTotalPages() || pageCache.contains(page)
+                || Math.abs(page - pageState.getCurrentPage()) > PREFETCH_DISTANCE) return;
+        List<User> pageUsers = readPage(page);
+        pageCache.put(page, pageUsers);
+        avatarPreloader.preload(pageUsers);
+        Log.d(TAG, "warmPage: Page " + page + " ready");
     }
 
     public void deleteUserAndReload(User user) {
@@ -150,11 +319,6 @@ public class UserViewModel extends AndroidViewModel {
             @Override
             public void onUserDeleted() {
                 Log.d(TAG, "User deleted successfully: " + user.getId());
-                dataHandler.removeUser(user);
-                updatePagination();
-                checkAndAdjustPage();
-                totalUsers.postValue(dataHandler.getAllUsersSize());
-                paginationUpdated.postValue(true);
             }
 
             @Override
@@ -164,16 +328,43 @@ public class UserViewModel extends AndroidViewModel {
         });
     }
 
+    // One transaction for the whole selection; its single invalidation reloads the window once
+    public void deleteUsers(List<Integer> userIds, OnUsersDeleteListener listener) {
+        repository.deleteUsers(new ArrayList<>(userIds), new FetchUsers.OnUsersDeleteListener() {
+            @Override
+            public void onUsersDeleted(int count) {
+                Log.d(TAG, "Users deleted successfully: " + count);
+                listener.onUsersDeleted(count);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error deleting users: " + error);
+                listener.onError(error);
+            }
+        });
+    }
+
+    public void updateUsers(List<User> users, OnUsersUpdateListener listener) {
+        repository.updateUsers(new ArrayList<>(users), new FetchUsers.OnUsersUpdateListener() {
+            @Override
+            public void onUsersUpdated(int count) {
+                Log.d(TAG, "Users updated successfully: " + count);
+                listener.onUsersUpdated(count);
+            }
+
+            @Override
+            public void onError(String error) {
+                listener.onError(error);
+            }
+        });
+    }
+
     public void updateUser(User user, OnUserUpdateListener listener) {
-        int lastKnownPage = currentPage.getValue() != null ? currentPage.getValue() : 1;
         repository.updateUser(user, new FetchUsers.OnUserUpdateListener() {
             @Override
             public void onUserUpdated(User updatedUser) {
                 Log.d(TAG, "User updated successfully: " + updatedUser.getId());
-                dataHandler.updateUser(updatedUser);
-                updatePagination();
-                loadPage(Math.min(lastKnownPage, totalPages.getValue() != null ? totalPages.getValue() : 1));
-                paginationUpdated.postValue(true);
                 listener.onUserUpdated();
             }
 
@@ -189,10 +380,6 @@ public class UserViewModel extends AndroidViewModel {
             @Override
             public void onUserCreated(User createdUser) {
                 Log.d(TAG, "User created successfully: " + createdUser.getId());
-                dataHandler.addUser(createdUser);
-                updatePagination();
-                checkAndAdjustPage();
-                paginationUpdated.postValue(true);
                 listener.onUserCreated();
             }
 
@@ -204,15 +391,25 @@ public class UserViewModel extends AndroidViewModel {
         });
     }
 
+    // Reads a single user from Room; the listener gets null if the row no longer exists
+    public void loadUser(int userId, OnUserLoadedListener listener) {
+        executor.execute("loadUser", Priority.HIGH, () -> listener.onUserLoaded(userDao.getUserById(userId)));
+    }
+
     public void isEmailUnique(String email, int userId, EmailUniqueCallback callback) {
-        executor.execute(() -> {
-            int count = userDao.countUsersWithEmail(email, userId);
-            boolean isUnique = count == 0;
+        executor.execute("isEmailUnique", Priority.HIGH, () -> {
+            // Most emails typed on save are new, the filter answers those without a query
+            boolean isUnique = !EmailFilter.getInstance().mightContain(userDao, email)
+                    || userDao.countUsersWithEmail(email, userId) == 0;
             Log.d(TAG, "Email uniqueness check result: " + isUnique);
             callback.onResult(isUnique);
         });
     }
 
+    public interface OnUserLoadedListener {
+        void onUserLoaded(User user);
+    }
+
     public interface EmailUniqueCallback {
         void onResult(boolean isUnique);
     }
@@ -227,10 +424,24 @@ public class UserViewModel extends AndroidViewModel {
         void onError(String error);
     }
 
+    public interface OnUsersDeleteListener {
+        void onUsersDeleted(int count);
+        void onError(String error);
+    }
+
+    public interface OnUsersUpdateListener {
+        void onUsersUpdated(int count);
+        void onError(String error);
+    }
+
     @Override
     protected void onCleared() {
         super.onCleared();
         executor.shutdown();
-        Log.d(TAG, "UserViewModel cleared, executor shut down");
+        UserChangeNotifier.getInstance().removeObserver(changeObserver);
+        // Unregistering touches the database, keep it off the main thread
+        AppExecutors.getInstance().io().execute("unobserveUsers", Priority.LOW,
+                () -> database.getInvalidationTracker().removeObserver(usersObserver));
+        Log.d(TAG, "UserViewModel cleared, executor shut down\n" + AppExecutors.getInstance().getMetrics());
     }
 }
\ No newline at end of file
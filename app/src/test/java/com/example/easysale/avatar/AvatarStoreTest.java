@@ -0,0 +1,38 @@
+package com.example.easysale.avatar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class AvatarStoreTest {
+
+    @Test
+    public void calculateInSampleSize_smallImage_decodesFullSize() {
+        assertEquals(1, AvatarStore.calculateInSampleSize(400, 300, AvatarStore.MAX_SIZE_PX));
+        assertEquals(1, AvatarStore.calculateInSampleSize(1023, 700, AvatarStore.MAX_SIZE_PX));
+    }
+
+    @Test
+    public void calculateInSampleSize_keepsLongerSideAtLeastTarget() {
+        // 12MP camera photo, portrait and landscape
+        assertEquals(4, AvatarStore.calculateInSampleSize(4032, 3024, AvatarStore.MAX_SIZE_PX));
+        assertEquals(4, AvatarStore.calculateInSampleSize(3024, 4032, AvatarStore.MAX_SIZE_PX));
+        assertEquals(2, AvatarStore.calculateInSampleSize(1024, 1024, AvatarStore.MAX_SIZE_PX));
+        assertEquals(8, AvatarStore.calculateInSampleSize(4096, 100, AvatarStore.MAX_SIZE_PX));
+    }
+
+    @Test
+    public void sha256_isStableHexNameForContent() {
+        byte[] bytes = "avatar".getBytes(StandardCharsets.UTF_8);
+
+        String name = AvatarStore.sha256(bytes);
+
+        assertEquals(64, name.length());
+        assertEquals(name, AvatarStore.sha256(bytes.clone()));
+        assertNotEquals(name, AvatarStore.sha256("avatar2".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", AvatarStore.sha256(new byte[0]));
+    }
+}
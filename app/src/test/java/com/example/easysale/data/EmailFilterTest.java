@@ -0,0 +1,106 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EmailFilterTest {
+
+    // UserDao that only answers the two queries the filter loads from, and counts the loads
+    private static UserDao emailDao(List<String> emails, AtomicInteger loads) {
+        return (UserDao) Proxy.newProxyInstance(UserDao.class.getClassLoader(), new Class<?>[]{UserDao.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "countUsers":
+                            return emails.size();
+                        case "getAllEmails":
+                            loads.incrementAndGet();
+                            return new ArrayList<>(emails);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static List<String> emails(int count) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            emails.add("user" + i + "@example.com");
+        }
+        return emails;
+    }
+
+    @Test
+    public void mightContain_everyStoredEmailIgnoringCase() {
+        List<String> stored = emails(5_000);
+        UserDao dao = emailDao(stored, new AtomicInteger());
+        EmailFilter filter = new EmailFilter();
+
+        for (String email : stored) {
+            assertTrue(filter.mightContain(dao, email));
+            assertTrue(filter.mightContain(dao, email.toUpperCase()));
+        }
+    }
+
+    @Test
+    public void mightContain_rejectsMostUnknownEmails() {
+        UserDao dao = emailDao(emails(5_000), new AtomicInteger());
+        EmailFilter filter = new EmailFilter();
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(dao, "new" + i + "@example.org")) {
+                falsePositives++;
+            }
+        }
+        // Sized for ~1% at capacity, and the filter is half full here
+        assertTrue("false positives: " + falsePositives, falsePositives < 100);
+    }
+
+    @Test
+    public void add_emailWrittenAfterLoad_isSeenWithoutReloading() {
+        AtomicInteger loads = new AtomicInteger();
+        UserDao dao = emailDao(emails(10), loads);
+        EmailFilter filter = new EmailFilter();
+        assertFalse(filter.mightContain(dao, "jane@example.com"));
+
+        filter.add("Jane@Example.com");
+
+        assertTrue(filter.mightContain(dao, "jane@example.com"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void add_pastCapacity_rebuildsFromDatabase() {
+        AtomicInteger loads = new AtomicInteger();
+        List<String> stored = emails(10);
+        UserDao dao = emailDao(stored, loads);
+        EmailFilter filter = new EmailFilter();
+        filter.mightContain(dao, "x@example.com");
+
+        // Minimum capacity is 1024 emails
+        List<String> added = emails(2_000).subList(10, 2_000);
+        for (String email : added) {
+            filter.add(email);
+        }
+        stored.addAll(added);
+
+        assertTrue(filter.mightContain(dao, "user1999@example.com"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void nullEmail_isNeverTaken() {
+        EmailFilter filter = new EmailFilter();
+        filter.add(null);
+
+        assertFalse(filter.mightContain(emailDao(emails(1), new AtomicInteger()), null));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.easysale.data;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+// Tiny JMH-style harness for the JVM decode benchmarks: warm up, then time a fixed number of
+// operations and, where the JVM supports it, count the bytes allocated by this thread.
+final class MicroBenchmark {
+
+    interface Operation {
+        // Returns something derived from the work so the JIT can't drop it
+        int run() throws Exception;
+    }
+
+    static final class Result {
+        final String name;
+        final double nanosPerOp;
+        final long bytesPerOp;
+
+        Result(String name, double nanosPerOp, long bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-28s %12.1f us/op %12s B/op", name, nanosPerOp / 1000.0,
+                    bytesPerOp >= 0 ? String.valueOf(bytesPerOp) : "n/a");
+        }
+    }
+
+    private static volatile int sink;
+
+    private MicroBenchmark() {
+    }
+
+    // Benchmarks run hundreds of measured operations, so they stay out of the default test run
+    static void assumeRequested() {
+        Assume.assumeTrue("Benchmarks run with -Pbenchmarks", Boolean.getBoolean("benchmarks"));
+    }
+
+    static Result measure(String name, int warmupOps, int measuredOps, Operation operation) throws Exception {
+        for (int i = 0; i < warmupOps; i++) {
+            sink += operation.run();
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredOps; i++) {
+            sink += operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytesAfter = allocatedBytes();
+        long bytesPerOp = bytesBefore >= 0 && bytesAfter >= 0 ? (bytesAfter - bytesBefore) / measuredOps : -1;
+        return new Result(name, (double) elapsed / measuredOps, bytesPerOp);
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
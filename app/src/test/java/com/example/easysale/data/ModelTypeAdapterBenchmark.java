@@ -0,0 +1,64 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.easysale.model.ModelTypeAdapterFactory;
+import com.example.easysale.model.UserResponse;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+// Hand-written model adapters (what RetrofitClient uses) vs. Gson's reflective path.
+// Reports first-use cost on a fresh Gson, steady-state throughput and bytes allocated per user.
+public class ModelTypeAdapterBenchmark {
+    private static final int USERS_PER_PAGE = 500;
+    private static final int WARMUP_OPS = 200;
+    private static final int MEASURED_OPS = 400;
+
+    @Before
+    public void setUp() {
+        MicroBenchmark.assumeRequested();
+    }
+
+    @Test
+    public void handWrittenAdapters_vsReflection() throws Exception {
+        String json = UserPageReaderTest.pageJson(USERS_PER_PAGE);
+
+        long reflectiveColdNanos = firstDecodeNanos(new Gson(), json);
+        long adapterColdNanos = firstDecodeNanos(newAdapterGson(), json);
+
+        Gson reflective = new Gson();
+        Gson adapters = newAdapterGson();
+        MicroBenchmark.Result reflectiveResult = MicroBenchmark.measure("reflective Gson", WARMUP_OPS, MEASURED_OPS,
+                () -> reflective.fromJson(json, UserResponse.class).getData().size());
+        MicroBenchmark.Result adapterResult = MicroBenchmark.measure("ModelTypeAdapterFactory", WARMUP_OPS, MEASURED_OPS,
+                () -> adapters.fromJson(json, UserResponse.class).getData().size());
+
+        System.out.println("Parsing a page of " + USERS_PER_PAGE + " users:");
+        printResult(reflectiveResult, reflectiveColdNanos);
+        printResult(adapterResult, adapterColdNanos);
+
+        assertEquals(USERS_PER_PAGE, adapters.fromJson(json, UserResponse.class).getData().size());
+    }
+
+    private static Gson newAdapterGson() {
+        return new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+    }
+
+    private static long firstDecodeNanos(Gson gson, String json) {
+        long start = System.nanoTime();
+        gson.fromJson(json, UserResponse.class);
+        return System.nanoTime() - start;
+    }
+
+    private static void printResult(MicroBenchmark.Result result, long coldNanos) {
+        double usersPerSecond = USERS_PER_PAGE / (result.nanosPerOp / 1_000_000_000.0);
+        String bytesPerUser = result.bytesPerOp >= 0 ? String.valueOf(result.bytesPerOp / USERS_PER_PAGE) : "n/a";
+        System.out.println(String.format(Locale.US, "%-24s first use %8.2f ms  %12.0f users/s  %6s B/user",
+                result.name, coldNanos / 1_000_000.0, usersPerSecond, bytesPerUser));
+    }
+}
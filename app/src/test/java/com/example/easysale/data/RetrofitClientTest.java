@@ -0,0 +1,106 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.example.easysale.model.UserResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+
+public class RetrofitClientTest {
+    private static final String PAGE_BODY = "{\"page\":1,\"per_page\":6,\"total\":1,\"total_pages\":1,"
+            + "\"data\":[{\"id\":1,\"email\":\"george.bluth@reqres.in\",\"first_name\":\"George\","
+            + "\"last_name\":\"Bluth\",\"avatar\":\"https://reqres.in/img/faces/1-image.jpg\"}]}";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ApiService apiService;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        OkHttpClient httpClient = RetrofitClient.buildHttpClient(tempFolder.newFolder("http_cache"));
+        apiService = RetrofitClient.buildRetrofit(server.url("/api/").toString(), httpClient).create(ApiService.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void unchangedPage_isRevalidatedWithETag_andServedFromCache() throws Exception {
+        server.enqueue(new MockResponse().setBody(PAGE_BODY).setHeader("ETag", "\"v1\"")
+                .setHeader("Cache-Control", "max-age=14400"));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        Response<UserResponse> first = apiService.getUsers(1, 6).execute();
+        Response<UserResponse> second = apiService.getUsers(1, 6).execute();
+
+        RecordedRequest firstRequest = server.takeRequest();
+        RecordedRequest secondRequest = server.takeRequest();
+        assertNull(firstRequest.getHeader("If-None-Match"));
+        // max-age is ignored, the cached page still goes back to the server for validation
+        assertEquals("\"v1\"", secondRequest.getHeader("If-None-Match"));
+        assertEquals(2, server.getRequestCount());
+
+        assertNotNull(second.raw().networkResponse());
+        assertEquals(304, second.raw().networkResponse().code());
+        assertNotNull(second.raw().cacheResponse());
+        assertEquals(first.body().getData().get(0).getEmail(), second.body().getData().get(0).getEmail());
+    }
+
+    @Test
+    public void lastModified_isSentAsIfModifiedSince() throws Exception {
+        String lastModified = "Tue, 01 Oct 2024 10:00:00 GMT";
+        server.enqueue(new MockResponse().setBody(PAGE_BODY).setHeader("Last-Modified", lastModified));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        apiService.getUsers(1, 6).execute();
+        Response<UserResponse> second = apiService.getUsers(1, 6).execute();
+
+        server.takeRequest();
+        assertEquals(lastModified, server.takeRequest().getHeader("If-Modified-Since"));
+        assertEquals(1, second.body().getTotal());
+    }
+
+    @Test
+    public void changedPage_returnsNewBody() throws Exception {
+        server.enqueue(new MockResponse().setBody(PAGE_BODY).setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setBody(PAGE_BODY.replace("George", "Georgie")).setHeader("ETag", "\"v2\""));
+
+        apiService.getUsers(1, 6).execute();
+        Response<UserResponse> second = apiService.getUsers(1, 6).execute();
+
+        assertEquals("Georgie", second.body().getData().get(0).getFirstName());
+        assertEquals(200, second.raw().networkResponse().code());
+    }
+
+    @Test
+    public void noStoreResponse_isNotCached() throws Exception {
+        server.enqueue(new MockResponse().setBody(PAGE_BODY).setHeader("ETag", "\"v1\"")
+                .setHeader("Cache-Control", "no-store"));
+        server.enqueue(new MockResponse().setBody(PAGE_BODY).setHeader("ETag", "\"v1\""));
+
+        apiService.getUsers(1, 6).execute();
+        Response<UserResponse> second = apiService.getUsers(1, 6).execute();
+
+        server.takeRequest();
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertNull(second.raw().cacheResponse());
+    }
+}
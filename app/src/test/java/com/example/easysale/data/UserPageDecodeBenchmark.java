@@ -0,0 +1,43 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.easysale.model.UserResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+// Streaming UserPageReader vs. the GsonConverterFactory path Retrofit used before.
+// Prints per-page time and allocation; only the decoded counts are asserted, timings are for reading.
+public class UserPageDecodeBenchmark {
+    private static final int USERS_PER_PAGE = 2000;
+    private static final int BATCH_SIZE = 50;
+    private static final int WARMUP_OPS = 50;
+    private static final int MEASURED_OPS = 100;
+
+    @Before
+    public void setUp() {
+        MicroBenchmark.assumeRequested();
+    }
+
+    @Test
+    public void streamingReader_vsGsonConverter() throws Exception {
+        String json = UserPageReaderTest.pageJson(USERS_PER_PAGE);
+
+        MicroBenchmark.Result gson = MicroBenchmark.measure("GsonConverterFactory", WARMUP_OPS, MEASURED_OPS, () -> {
+            UserResponse response = UserPageReaderTest.decodeWithGsonConverter(json);
+            return response.getData().size();
+        });
+        MicroBenchmark.Result streaming = MicroBenchmark.measure("UserPageReader (streaming)", WARMUP_OPS, MEASURED_OPS, () ->
+                UserPageReader.read(new StringReader(json), BATCH_SIZE, users -> { }).userCount);
+
+        System.out.println("Decoding a page of " + USERS_PER_PAGE + " users:");
+        System.out.println(gson);
+        System.out.println(streaming);
+
+        assertEquals(USERS_PER_PAGE, UserPageReaderTest.decodeWithGsonConverter(json).getData().size());
+        assertEquals(USERS_PER_PAGE, UserPageReader.read(new StringReader(json), BATCH_SIZE, users -> { }).userCount);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.easysale.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.easysale.model.User;
+import com.example.easysale.model.UserResponse;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+public class UserPageReaderTest {
+
+    static String pageJson(int users) {
+        StringBuilder json = new StringBuilder("{\"page\":1,\"per_page\":").append(users)
+                .append(",\"total\":").append(users).append(",\"total_pages\":1,\"data\":[");
+        for (int i = 1; i <= users; i++) {
+            if (i > 1) json.append(',');
+            json.append("{\"id\":").append(i)
+                    .append(",\"email\":\"user").append(i).append("@reqres.in\"")
+                    .append(",\"first_name\":\"First").append(i).append('"')
+                    .append(",\"last_name\":\"Last").append(i).append('"')
+                    .append(",\"avatar\":\"https://reqres.in/img/faces/").append(i).append("-image.jpg\"}");
+        }
+        return json.append("],\"support\":{\"url\":\"https://reqres.in/#support-heading\",\"text\":\"Thanks\"}}").toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    static UserResponse decodeWithGsonConverter(String json) throws Exception {
+        Converter<ResponseBody, UserResponse> converter = (Converter<ResponseBody, UserResponse>)
+                GsonConverterFactory.create().responseBodyConverter(UserResponse.class, new java.lang.annotation.Annotation[0], null);
+        return converter.convert(ResponseBody.create(json, MediaType.get("application/json")));
+    }
+
+    @Test
+    public void read_matchesGsonConverter() throws Exception {
+        String json = pageJson(13);
+        List<User> streamed = new ArrayList<>();
+        UserPageReader.PageInfo info = UserPageReader.read(new StringReader(json), 50, streamed::addAll);
+        UserResponse expected = decodeWithGsonConverter(json);
+
+        assertTrue(info.hasData);
+        assertEquals(expected.getPage(), info.page);
+        assertEquals(expected.getPerPage(), info.perPage);
+        assertEquals(expected.getTotal(), info.total);
+        assertEquals(expected.getTotalPages(), info.totalPages);
+        assertEquals(expected.getData().size(), info.userCount);
+        assertEquals(expected.getData().size(), streamed.size());
+        for (int i = 0; i < streamed.size(); i++) {
+            User a = expected.getData().get(i);
+            User b = streamed.get(i);
+            assertEquals(a.getId(), b.getId());
+            assertEquals(a.getEmail(), b.getEmail());
+            assertEquals(a.getFirstName(), b.getFirstName());
+            assertEquals(a.getLastName(), b.getLastName());
+            assertEquals(a.getAvatar(), b.getAvatar());
+        }
+    }
+
+    @Test
+    public void read_handsUsersOverInBatches() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        UserPageReader.read(new StringReader(pageJson(7)), 3, users -> batchSizes.add(users.size()));
+
+        assertEquals(3, batchSizes.size());
+        assertEquals(Integer.valueOf(3), batchSizes.get(0));
+        assertEquals(Integer.valueOf(3), batchSizes.get(1));
+        assertEquals(Integer.valueOf(1), batchSizes.get(2));
+    }
+
+    @Test
+    public void read_acceptsAnyFieldOrderNullsAndUnknownFields() throws Exception {
+        String json = "{\"data\":[{\"avatar\":null,\"extra\":[1,2],\"last_name\":\"Bluth\",\"id\":1,"
+                + "\"first_name\":\"George\",\"email\":\"george.bluth@reqres.in\"}],\"total_pages\":2,\"page\":1}";
+        List<User> streamed = new ArrayList<>();
+        UserPageReader.PageInfo info = UserPageReader.read(new StringReader(json), 10, streamed::addAll);
+
+        assertEquals(2, info.totalPages);
+        assertEquals(1, streamed.size());
+        assertEquals(1, streamed.get(0).getId());
+        assertEquals("George", streamed.get(0).getFirstName());
+        assertNull(streamed.get(0).getAvatar());
+    }
+
+    @Test
+    public void read_reportsMissingData() throws Exception {
+        UserPageReader.PageInfo info = UserPageReader.read(new StringReader("{\"page\":1,\"total\":0}"), 10, users -> { });
+
+        assertFalse(info.hasData);
+        assertEquals(0, info.userCount);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.easysale.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+public class ModelTypeAdapterFactoryTest {
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+
+    @Test
+    public void gson_usesHandWrittenAdapters() {
+        assertSame(UserTypeAdapter.INSTANCE, gson.getAdapter(User.class));
+        assertSame(UserResponseTypeAdapter.INSTANCE, gson.getAdapter(UserResponse.class));
+    }
+
+    @Test
+    public void readPage_matchesReflectiveGson() {
+        String json = "{\"page\":2,\"per_page\":6,\"total\":12,\"total_pages\":2,\"data\":[{\"id\":7,"
+                + "\"email\":\"michael.lawson@reqres.in\",\"first_name\":\"Michael\",\"last_name\":\"Lawson\","
+                + "\"avatar\":\"https://reqres.in/img/faces/7-image.jpg\"}],\"support\":{\"url\":\"x\",\"text\":\"y\"}}";
+
+        UserResponse expected = new Gson().fromJson(json, UserResponse.class);
+        UserResponse actual = gson.fromJson(json, UserResponse.class);
+
+        assertEquals(expected.getPage(), actual.getPage());
+        assertEquals(expected.getPerPage(), actual.getPerPage());
+        assertEquals(expected.getTotal(), actual.getTotal());
+        assertEquals(expected.getTotalPages(), actual.getTotalPages());
+        assertEquals(1, actual.getData().size());
+        User user = actual.getData().get(0);
+        assertEquals(7, user.getId());
+        assertEquals("michael.lawson@reqres.in", user.getEmail());
+        assertEquals("Michael", user.getFirstName());
+        assertEquals("Lawson", user.getLastName());
+        assertEquals(expected.getData().get(0).getAvatar(), user.getAvatar());
+    }
+
+    @Test
+    public void readUser_acceptsQuotedIdAndSkipsUnknownFields() {
+        // Shape of a reqres create response
+        User user = gson.fromJson("{\"first_name\":\"Ann\",\"last_name\":\"Lee\",\"email\":null,"
+                + "\"id\":\"512\",\"createdAt\":\"2024-01-01T00:00:00.000Z\"}", User.class);
+
+        assertEquals(512, user.getId());
+        assertEquals("Ann", user.getFirstName());
+        assertNull(user.getEmail());
+    }
+
+    @Test
+    public void writeUser_sendsOnlyApiFields() {
+        User user = new User();
+        user.setId(3);
+        user.setEmail("emma.wong@reqres.in");
+        user.setFirstName("Emma");
+        user.setLastName("Wong");
+        user.setSyncHash(42);
+        user.getSearchKey();
+
+        String json = gson.toJson(user);
+
+        assertTrue(json.contains("\"first_name\":\"Emma\""));
+        assertTrue(json.contains("\"last_name\":\"Wong\""));
+        assertFalse(json.contains("syncHash"));
+        assertFalse(json.contains("searchKey"));
+        assertFalse(json.contains("avatar"));
+    }
+}
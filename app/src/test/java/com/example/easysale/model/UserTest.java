@@ -0,0 +1,37 @@
+package com.example.easysale.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UserTest {
+
+    @Test
+    public void searchKey_followsFieldSetAfterItWasComputed() {
+        User user = new User();
+        user.setFirstName("Emma");
+        String partial = user.getSearchKey();
+
+        user.setLastName("Wong");
+        user.setEmail("emma.wong@reqres.in");
+
+        assertTrue(user.getSearchKey().contains("wong"));
+        assertTrue(user.getSearchKey().length() > partial.length());
+    }
+
+    @Test
+    public void searchKey_followsChangedField() {
+        User user = new User();
+        user.setFirstName("Emma");
+        user.setLastName("Wong");
+        user.getSearchKey();
+
+        user.setFirstName("Eve");
+
+        User expected = new User();
+        expected.setFirstName("Eve");
+        expected.setLastName("Wong");
+        assertEquals(expected.getSearchKey(), user.getSearchKey());
+    }
+}
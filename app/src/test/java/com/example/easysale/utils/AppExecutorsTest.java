@@ -0,0 +1,131 @@
+package com.example.easysale.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.easysale.utils.PriorityExecutor.Priority;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AppExecutorsTest {
+
+    // Occupies the only thread of a single-threaded executor until released
+    private static CountDownLatch blockThread(PriorityExecutor executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute("blocker", Priority.HIGH, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void priorityExecutor_runsHigherPriorityFirst_fifoWithinPriority() throws Exception {
+        PriorityExecutor executor = new PriorityExecutor("test", 1, 16);
+        CountDownLatch release = blockThread(executor);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(4);
+        executor.execute("a", Priority.LOW, () -> { order.add("low"); done.countDown(); });
+        executor.execute("b", Priority.NORMAL, () -> { order.add("normal-1"); done.countDown(); });
+        executor.execute("c", Priority.HIGH, () -> { order.add("high"); done.countDown(); });
+        executor.execute("d", Priority.NORMAL, () -> { order.add("normal-2"); done.countDown(); });
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("high", "normal-1", "normal-2", "low"), order);
+    }
+
+    @Test
+    public void priorityExecutor_rejectsOnceTheQueueIsFull() throws Exception {
+        PriorityExecutor executor = new PriorityExecutor("test", 1, 2);
+        CountDownLatch release = blockThread(executor);
+        executor.execute("queued-1", Priority.NORMAL, () -> { });
+        executor.execute("queued-2", Priority.NORMAL, () -> { });
+        try {
+            executor.execute("overflow", Priority.NORMAL, () -> { });
+            fail("Expected the full queue to reject the task");
+        } catch (RejectedExecutionException expected) {
+            // Backpressure
+        }
+        assertEquals(2, executor.getQueueDepth());
+        assertTrue(executor.getMetrics().contains("rejected=1"));
+        release.countDown();
+    }
+
+    @Test
+    public void serialLane_runsTasksOfAPriorityInOrderOneAtATime() throws Exception {
+        PriorityExecutor pool = new PriorityExecutor("test", 4, 16);
+        SerialExecutor lane = new SerialExecutor("lane", pool, 1000);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            final int task = i;
+            lane.execute("task " + i, Priority.NORMAL, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(task);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void serialLane_runsWaitingHigherPriorityTasksFirst() throws Exception {
+        PriorityExecutor pool = new PriorityExecutor("test", 1, 16);
+        CountDownLatch release = blockThread(pool);
+        SerialExecutor lane = new SerialExecutor("lane", pool, 16);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(5);
+        // Handed to the pool right away, the others wait in the lane
+        lane.execute("first", Priority.LOW, () -> { order.add("first"); done.countDown(); });
+        lane.execute("a", Priority.LOW, () -> { order.add("low"); done.countDown(); });
+        lane.execute("b", Priority.NORMAL, () -> { order.add("normal-1"); done.countDown(); });
+        lane.execute("c", Priority.HIGH, () -> { order.add("high"); done.countDown(); });
+        lane.execute("d", Priority.NORMAL, () -> { order.add("normal-2"); done.countDown(); });
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "high", "normal-1", "normal-2", "low"), order);
+    }
+
+    @Test
+    public void serialLane_boundsItsBacklog() throws Exception {
+        PriorityExecutor pool = new PriorityExecutor("test", 1, 16);
+        CountDownLatch release = blockThread(pool);
+        SerialExecutor lane = new SerialExecutor("lane", pool, 2);
+        lane.execute(() -> { });
+        lane.execute(() -> { });
+        lane.execute(() -> { });
+        try {
+            lane.execute(() -> { });
+            fail("Expected the lane backlog to reject the task");
+        } catch (RejectedExecutionException expected) {
+            // One task handed to the pool plus two waiting in the lane
+        }
+        release.countDown();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.easysale.viewmodel;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.easysale.model.User;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PageCacheTest {
+
+    private static List<User> page(int id) {
+        User user = new User();
+        user.setId(id);
+        return Collections.singletonList(user);
+    }
+
+    @Test
+    public void get_returnsPutPage() {
+        PageCache cache = new PageCache(4);
+        List<User> users = page(1);
+        cache.put(1, users);
+
+        assertSame(users, cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    public void put_pastCapacity_evictsLeastRecentlyUsed() {
+        PageCache cache = new PageCache(3);
+        cache.put(1, page(1));
+        cache.put(2, page(2));
+        cache.put(3, page(3));
+        // Showing page 1 again makes page 2 the eldest
+        cache.get(1);
+
+        cache.put(4, page(4));
+
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertNotNull(cache.get(4));
+    }
+
+    @Test
+    public void contains_doesNotRefreshPage() {
+        PageCache cache = new PageCache(2);
+        cache.put(1, page(1));
+        cache.put(2, page(2));
+        assertTrue(cache.contains(1));
+
+        cache.put(3, page(3));
+
+        assertFalse(cache.contains(1));
+    }
+
+    @Test
+    public void clear_dropsEveryPage() {
+        PageCache cache = new PageCache(4);
+        cache.put(1, page(1));
+        cache.put(2, page(2));
+
+        cache.clear();
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+    }
+}
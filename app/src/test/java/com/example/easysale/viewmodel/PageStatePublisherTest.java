@@ -0,0 +1,162 @@
+package com.example.easysale.viewmodel;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.Observer;
+
+import com.example.easysale.model.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Counts what observers of the list screen receive; every logical change must be exactly one emission
+public class PageStatePublisherTest {
+    private static final int PAGE_SIZE = 6;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private PageStatePublisher publisher;
+    private final List<PageState> emissions = new ArrayList<>();
+    private final Observer<PageState> observer = emissions::add;
+
+    @Before
+    public void setUp() {
+        publisher = new PageStatePublisher(PAGE_SIZE);
+        publisher.getState().observeForever(observer);
+    }
+
+    @After
+    public void tearDown() {
+        publisher.getState().removeObserver(observer);
+    }
+
+    private static List<User> page(int firstId) {
+        List<User> users = new ArrayList<>();
+        for (int id = firstId; id < firstId + PAGE_SIZE; id++) {
+            User user = new User();
+            user.setId(id);
+            users.add(user);
+        }
+        return Collections.unmodifiableList(users);
+    }
+
+    // Same steps as UserViewModel.reloadWindow: totals, then the page, then one publish
+    private void reload(int totalUsers, int page, List<User> users) {
+        publisher.setTotalUsers(totalUsers);
+        publisher.setPage(page, users);
+        publisher.publish();
+    }
+
+    @Test
+    public void reload_emitsOneCompleteSnapshot() {
+        List<User> users = page(1);
+        reload(20, 1, users);
+
+        assertEquals(1, emissions.size());
+        PageState state = emissions.get(0);
+        assertEquals(users, state.getUsers());
+        assertEquals(1, state.getCurrentPage());
+        assertEquals(4, state.getTotalPages());
+        assertEquals(20, state.getTotalUsers());
+    }
+
+    @Test
+    public void bulkDelete_emitsOnceWithNewTotalsAndPage() {
+        reload(20, 4, page(19));
+        emissions.clear();
+
+        // Fourteen users deleted in one transaction: the current page no longer exists
+        publisher.setTotalUsers(6);
+        publisher.setPage(publisher.getTotalPages(), page(1));
+        publisher.publish();
+
+        assertEquals(1, emissions.size());
+        assertEquals(1, emissions.get(0).getCurrentPage());
+        assertEquals(1, emissions.get(0).getTotalPages());
+        assertEquals(6, emissions.get(0).getTotalUsers());
+    }
+
+    @Test
+    public void unchangedState_isNotEmittedAgain() {
+        List<User> users = page(1);
+        reload(20, 1, users);
+        reload(20, 1, users);
+
+        assertEquals(1, emissions.size());
+    }
+
+    @Test
+    public void cachedPage_isEmittedOnceAndNotAgainWhenConfirmed() {
+        reload(20, 1, page(1));
+        List<User> cached = page(7);
+
+        // Main thread shows the warmed page, then the executor stages and publishes the same one
+        publisher.publishNow(2, cached);
+        reload(20, 2, cached);
+
+        assertEquals(2, emissions.size());
+        assertEquals(2, emissions.get(1).getCurrentPage());
+        assertEquals(4, emissions.get(1).getTotalPages());
+    }
+
+    @Test
+    public void rereadPage_isEmitted() {
+        reload(20, 1, page(1));
+        // A row on the page was edited: same ids, new instances from the database
+        reload(20, 1, page(1));
+
+        assertEquals(2, emissions.size());
+    }
+
+    @Test
+    public void postedPage_arrivingAfterNewerCachedPage_isDropped() {
+        reload(20, 1, page(1));
+        List<User> cached = page(7);
+        // Main thread busy: what the executor posts waits in the queue
+        List<Runnable> mainQueue = new ArrayList<>();
+        ArchTaskExecutor.getInstance().setDelegate(new TaskExecutor() {
+            @Override
+            public void executeOnDiskIO(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public void postToMainThread(@NonNull Runnable runnable) {
+                mainQueue.add(runnable);
+            }
+
+            @Override
+            public boolean isMainThread() {
+                return true;
+            }
+        });
+
+        // A reload re-reads page 1, then the user swipes to the warmed page 2 before it arrives
+        reload(20, 1, page(1));
+        publisher.publishNow(2, cached);
+        for (Runnable runnable : mainQueue) {
+            runnable.run();
+        }
+        mainQueue.clear();
+        // The executor confirms page 2
+        reload(20, 2, cached);
+        for (Runnable runnable : mainQueue) {
+            runnable.run();
+        }
+
+        assertEquals(2, emissions.size());
+        assertEquals(2, emissions.get(1).getCurrentPage());
+        assertEquals(cached, publisher.getState().getValue().getUsers());
+    }
+}
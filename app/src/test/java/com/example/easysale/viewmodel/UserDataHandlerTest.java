@@ -0,0 +1,74 @@
+package com.example.easysale.viewmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.easysale.model.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+public class UserDataHandlerTest {
+
+    private static User user(int id, String firstName) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        user.setLastName("Bluth");
+        return user;
+    }
+
+    private static List<Integer> ids(UserDataHandler handler) {
+        List<Integer> ids = new ArrayList<>();
+        for (User user : handler.getFilteredUsersSubList(0, handler.getFilteredUsersSize())) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+
+    private static UserDataHandler searching(String query, User... results) {
+        UserDataHandler handler = new UserDataHandler();
+        handler.setSearchQuery(query);
+        handler.setSearchResults(Arrays.asList(results));
+        return handler;
+    }
+
+    @Test
+    public void applyChanges_renameOutOfQuery_removesUser() {
+        UserDataHandler handler = searching("go", user(9, "Gob"), user(3, "George"));
+
+        handler.applyChanges(new HashSet<>(Collections.singletonList(9)), Collections.singletonList(user(9, "Buster")));
+
+        assertEquals(Collections.singletonList(3), ids(handler));
+    }
+
+    @Test
+    public void applyChanges_newMatchingUser_isInsertedNewestFirst() {
+        UserDataHandler handler = searching("go", user(9, "Gob"), user(3, "George"));
+
+        handler.applyChanges(new HashSet<>(Arrays.asList(5, 12)), Arrays.asList(user(5, "Gordon"), user(12, "Lindsay")));
+
+        assertEquals(Arrays.asList(9, 5, 3), ids(handler));
+    }
+
+    @Test
+    public void applyChanges_deletedUser_leavesEveryCachedQuery() {
+        UserDataHandler handler = searching("g", user(9, "Gob"), user(3, "George"));
+        handler.setSearchQuery("ge");
+        assertTrue(handler.performSearch());
+        assertEquals(Collections.singletonList(3), ids(handler));
+
+        handler.applyChanges(new HashSet<>(Collections.singletonList(3)), Collections.<User>emptyList());
+
+        assertEquals(0, handler.getFilteredUsersSize());
+        // The broader query's cached results were patched too
+        handler.setSearchQuery("g");
+        assertTrue(handler.performSearch());
+        assertEquals(Collections.singletonList(9), ids(handler));
+    }
+}